@@ -34,6 +34,16 @@ public interface AxiomDiff {
 	public ChangeSet getDiff();
 	
 	
+	/**
+	 * Compute the diff until it is done or the given token is cancelled (e.g., by its deadline), whichever comes
+	 * first, and return a change set containing all differences found so far. Changes that could not be decided 
+	 * in time are marked as such in the change set, which is then not complete
+	 * @param token	Cancellation token
+	 * @return Change set with the differences
+	 */
+	public ChangeSet getDiff(CancellationToken token);
+	
+	
 	/**
 	 * Check if the given ontologies are equivalent w.r.t. the (instantiated) diff's equivalence notion
 	 * @return true if ontologies are equivalent, false otherwise
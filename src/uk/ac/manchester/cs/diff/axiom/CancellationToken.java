@@ -0,0 +1,87 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.axiom;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Cancellation token for diffs, which is cancelled either explicitly (from any thread) or once its deadline, 
+ * if any, has passed. A diff that is given a cancelled token stops as soon as possible, and returns a change set 
+ * whose undecided changes are those it did not get to check.
+ * </p>
+ */
+public class CancellationToken {
+	private final long deadline;
+	private volatile boolean cancelled;
+	
+	/**
+	 * Constructor for a token without deadline
+	 */
+	public CancellationToken() {
+		this(0);
+	}
+	
+	
+	/**
+	 * Constructor
+	 * @param deadline	Deadline (in milliseconds since the epoch), or 0 for no deadline
+	 */
+	public CancellationToken(long deadline) {
+		this.deadline = deadline;
+	}
+	
+	
+	/**
+	 * Get a token whose deadline is the given time from now
+	 * @param timeout	Timeout (in milliseconds), or 0 for no deadline
+	 * @return Cancellation token
+	 */
+	public static CancellationToken withTimeout(long timeout) {
+		return new CancellationToken(timeout > 0 ? System.currentTimeMillis() + timeout : 0);
+	}
+	
+	
+	/**
+	 * Cancel the token
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+	
+	
+	/**
+	 * Check whether the token has been cancelled, or its deadline has passed
+	 * @return true if the token is cancelled, false otherwise
+	 */
+	public boolean isCancelled() {
+		return cancelled || (deadline > 0 && System.currentTimeMillis() >= deadline);
+	}
+	
+	
+	/**
+	 * Get the deadline of the token
+	 * @return Deadline (in milliseconds since the epoch), or 0 if there is none
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+}
@@ -0,0 +1,358 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.axiom;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.semanticweb.owlapi.model.AxiomType;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+import org.semanticweb.owlapi.reasoner.InferenceType;
+import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import org.semanticweb.owlapi.reasoner.ReasonerInterruptedException;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Batched entailment checker. Axioms whose signature is not contained in that of the reasoner's root ontology
+ * are deemed not entailed, as in {@link LogicalDiff}. Subsumptions and equivalences between named classes are 
+ * answered from the class hierarchy computed (once) by the reasoner, and only the remaining axioms are checked 
+ * one at a time with <b>isEntailed</b>. If a reasoner factory is given, and there are enough such axioms, they are 
+ * partitioned across several reasoner instances for the root ontology, each checking its share on a separate thread.
+ * <br/><br/>
+ * Entailment checks stop once the given cancellation token is cancelled, or once the checker itself is cancelled
+ * (from another thread), which also interrupts its reasoners. The axioms that were not checked by then are left
+ * undecided, and the results obtained so far remain available.
+ * </p>
+ */
+public class EntailmentChecker {
+	private static final int MIN_BATCH_SIZE = 100;
+	private OWLReasoner reasoner;
+	private OWLReasonerFactory factory;
+	private int threads;
+	private Set<OWLEntity> signature;
+	private OWLClass nothing;
+	private Map<OWLClass,Set<OWLClass>> superClasses;
+	private Set<OWLAxiom> entailed, decided;
+	private List<OWLReasoner> reasoners;
+	private boolean precomputed;
+	private volatile boolean cancelled;
+	
+	/**
+	 * Constructor
+	 * @param reasoner	Instance of a reasoner loaded with the ontology
+	 * @param factory	Factory for additional reasoner instances, or null if only the given reasoner should be used
+	 * @param threads	Maximum number of reasoner instances (and threads) used for entailment checks
+	 */
+	public EntailmentChecker(OWLReasoner reasoner, OWLReasonerFactory factory, int threads) {
+		this.reasoner = reasoner;
+		this.factory = factory;
+		this.threads = threads;
+		signature = reasoner.getRootOntology().getSignature();
+		nothing = reasoner.getRootOntology().getOWLOntologyManager().getOWLDataFactory().getOWLNothing();
+		superClasses = new HashMap<OWLClass,Set<OWLClass>>();
+		entailed = new HashSet<OWLAxiom>();
+		decided = new HashSet<OWLAxiom>();
+		reasoners = new ArrayList<OWLReasoner>();
+		reasoners.add(reasoner);
+	}
+	
+	
+	/**
+	 * Get the axioms in the given set that are entailed by the ontology
+	 * @param axioms	Set of axioms to check
+	 * @return Set of entailed axioms
+	 */
+	public Set<OWLAxiom> getEntailed(Set<OWLAxiom> axioms) {
+		return getEntailed(axioms, new CancellationToken());
+	}
+	
+	
+	/**
+	 * Get the axioms in the given set that are entailed by the ontology, as far as they could be checked before 
+	 * the given token, or this checker, was cancelled
+	 * @param axioms	Set of axioms to check
+	 * @param token	Cancellation token
+	 * @return Set of axioms found to be entailed
+	 */
+	public Set<OWLAxiom> getEntailed(Set<OWLAxiom> axioms, CancellationToken token) {
+		List<OWLAxiom> hierarchy = new ArrayList<OWLAxiom>(), remaining = new ArrayList<OWLAxiom>();
+		for(OWLAxiom axiom : axioms) {
+			if(!signature.containsAll(axiom.getSignature()))
+				record(axiom, false);
+			else if(isHierarchyAxiom(axiom))
+				hierarchy.add(axiom);
+			else
+				remaining.add(axiom);
+		}
+		try {
+			for(OWLAxiom axiom : hierarchy) {
+				if(cancelled || token.isCancelled()) break;
+				record(axiom, isEntailedByHierarchy(axiom));
+			}
+			checkEntailments(remaining, token);
+		} catch (ReasonerInterruptedException e) {
+			if(!cancelled) throw e;
+		}
+		return getEntailed();
+	}
+	
+	
+	/**
+	 * Get the axioms found to be entailed so far
+	 * @return Set of entailed axioms
+	 */
+	public synchronized Set<OWLAxiom> getEntailed() {
+		return new HashSet<OWLAxiom>(entailed);
+	}
+	
+	
+	/**
+	 * Get the axioms in the given set that have not been checked (yet)
+	 * @param axioms	Set of axioms
+	 * @return Set of undecided axioms
+	 */
+	public synchronized Set<OWLAxiom> getUndecided(Set<OWLAxiom> axioms) {
+		Set<OWLAxiom> undecided = new HashSet<OWLAxiom>(axioms);
+		undecided.removeAll(decided);
+		return undecided;
+	}
+	
+	
+	/**
+	 * Cancel all ongoing and future entailment checks, and interrupt the reasoners. The results obtained so far 
+	 * are no longer updated
+	 */
+	public void cancel() {
+		List<OWLReasoner> toInterrupt;
+		synchronized(this) {
+			cancelled = true;
+			toInterrupt = new ArrayList<OWLReasoner>(reasoners);
+		}
+		for(OWLReasoner r : toInterrupt)
+			r.interrupt();
+	}
+	
+	
+	/**
+	 * Record the result of an entailment check, unless the checker has been cancelled
+	 * @param axiom	Axiom
+	 * @param isEntailed	true if the axiom is entailed, false otherwise
+	 */
+	private synchronized void record(OWLAxiom axiom, boolean isEntailed) {
+		if(cancelled) return;
+		decided.add(axiom);
+		if(isEntailed) entailed.add(axiom);
+	}
+	
+	
+	/**
+	 * Check whether the given axiom is a subsumption or equivalence between named classes
+	 * @param axiom	Axiom
+	 * @return true if the axiom can be checked against the class hierarchy, false otherwise
+	 */
+	private boolean isHierarchyAxiom(OWLAxiom axiom) {
+		if(axiom.isOfType(AxiomType.SUBCLASS_OF)) {
+			OWLSubClassOfAxiom ax = (OWLSubClassOfAxiom)axiom;
+			return !ax.getSubClass().isAnonymous() && !ax.getSuperClass().isAnonymous();
+		}
+		else if(axiom.isOfType(AxiomType.EQUIVALENT_CLASSES))
+			return ((OWLEquivalentClassesAxiom)axiom).getNamedClasses().size() == 
+					((OWLEquivalentClassesAxiom)axiom).getClassExpressions().size();
+		else
+			return false;
+	}
+	
+	
+	/**
+	 * Check whether the given subsumption or equivalence between named classes is entailed by the class hierarchy
+	 * @param axiom	Subsumption or equivalence between named classes
+	 * @return true if the axiom is entailed, false otherwise
+	 */
+	private boolean isEntailedByHierarchy(OWLAxiom axiom) {
+		if(axiom.isOfType(AxiomType.SUBCLASS_OF)) {
+			OWLSubClassOfAxiom ax = (OWLSubClassOfAxiom)axiom;
+			return isSubsumedBy(ax.getSubClass().asOWLClass(), ax.getSuperClass().asOWLClass());
+		}
+		Set<OWLClassExpression> classes = ((OWLEquivalentClassesAxiom)axiom).getClassExpressions();
+		for(OWLClassExpression c : classes) {
+			for(OWLClassExpression d : classes) {
+				if(!isSubsumedBy(c.asOWLClass(), d.asOWLClass()))
+					return false;
+			}
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Check whether the given subsumption between named classes is entailed
+	 * @param sub	Subclass
+	 * @param sup	Superclass
+	 * @return true if the subsumption is entailed, false otherwise
+	 */
+	private boolean isSubsumedBy(OWLClass sub, OWLClass sup) {
+		if(sub.equals(sup) || sub.isOWLNothing() || sup.isOWLThing())
+			return true;
+		Set<OWLClass> sups = getSuperClasses(sub);
+		return sups.contains(sup) || sups.contains(nothing);
+	}
+	
+	
+	/**
+	 * Get the (reflexive) superclasses of the given class, including its equivalent classes. The superclasses of an 
+	 * unsatisfiable class include owl:Nothing
+	 * @param c	Class
+	 * @return Set of superclasses
+	 */
+	private Set<OWLClass> getSuperClasses(OWLClass c) {
+		Set<OWLClass> sups = superClasses.get(c);
+		if(sups == null) {
+			if(!precomputed) {
+				reasoner.precomputeInferences(InferenceType.CLASS_HIERARCHY);
+				precomputed = true;
+			}
+			sups = new HashSet<OWLClass>(reasoner.getEquivalentClasses(c).getEntities());
+			sups.addAll(reasoner.getSuperClasses(c, false).getFlattened());
+			superClasses.put(c, sups);
+		}
+		return sups;
+	}
+	
+	
+	/**
+	 * Check the given axioms one at a time, partitioned across several reasoner instances if possible
+	 * @param axioms	List of axioms to check
+	 * @param token	Cancellation token
+	 */
+	private void checkEntailments(List<OWLAxiom> axioms, CancellationToken token) {
+		int nrReasoners = Math.min(threads, (axioms.size() + MIN_BATCH_SIZE - 1) / MIN_BATCH_SIZE);
+		if(factory == null || nrReasoners <= 1) {
+			checkEntailments(axioms, reasoner, 0, 1, token);
+			return;
+		}
+		
+		List<OWLReasoner> instances = new ArrayList<OWLReasoner>();
+		instances.add(reasoner);
+		for(int i = 1; i < nrReasoners && !cancelled && !token.isCancelled(); i++) {
+			OWLReasoner r = factory.createReasoner(reasoner.getRootOntology());
+			instances.add(r);
+			synchronized(this) { reasoners.add(r); }
+		}
+		
+		ExecutorService executor = Executors.newFixedThreadPool(instances.size());
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for(int i = 0; i < instances.size(); i++)
+				futures.add(executor.submit(new EntailmentCheck(axioms, instances.get(i), i, instances.size(), token)));
+			for(Future<?> future : futures)
+				getResult(future);
+		} finally {
+			executor.shutdown();
+			synchronized(this) { reasoners.removeAll(instances.subList(1, instances.size())); }
+			for(int i = 1; i < instances.size(); i++)
+				instances.get(i).dispose();
+		}
+	}
+	
+	
+	/**
+	 * Check every n-th axiom in the given list, starting from the given offset, until cancelled
+	 * @param axioms	List of axioms
+	 * @param r	Reasoner
+	 * @param offset	Offset of the first axiom to check
+	 * @param stride	Number of positions between checked axioms
+	 * @param token	Cancellation token
+	 */
+	private void checkEntailments(List<OWLAxiom> axioms, OWLReasoner r, int offset, int stride, CancellationToken token) {
+		for(int i = offset; i < axioms.size() && !cancelled && !token.isCancelled(); i += stride)
+			record(axioms.get(i), r.isEntailed(axioms.get(i)));
+	}
+	
+	
+	/**
+	 * Get the result of the given task, rethrowing any exception thrown by it
+	 * @param future	Task result
+	 * @return Result
+	 */
+	private static <T> T getResult(Future<T> future) {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			else if(e.getCause() instanceof Error)
+				throw (Error)e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	
+	/**
+	 * Entailment checks of a share of the axioms with one reasoner instance
+	 */
+	private class EntailmentCheck implements Runnable {
+		private List<OWLAxiom> axioms;
+		private OWLReasoner reasoner;
+		private int offset, stride;
+		private CancellationToken token;
+		
+		/**
+		 * Constructor
+		 * @param axioms	List of axioms
+		 * @param reasoner	Reasoner
+		 * @param offset	Offset of the first axiom to check
+		 * @param stride	Number of positions between checked axioms
+		 * @param token	Cancellation token
+		 */
+		public EntailmentCheck(List<OWLAxiom> axioms, OWLReasoner reasoner, int offset, int stride, CancellationToken token) {
+			this.axioms = axioms;
+			this.reasoner = reasoner;
+			this.offset = offset;
+			this.stride = stride;
+			this.token = token;
+		}
+		
+		
+		@Override
+		public void run() {
+			checkEntailments(axioms, reasoner, offset, stride, token);
+		}
+	}
+}
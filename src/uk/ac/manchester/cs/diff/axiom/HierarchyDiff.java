@@ -0,0 +1,192 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.axiom;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import uk.ac.manchester.cs.diff.axiom.changeset.LogicalChangeSet;
+import uk.ac.manchester.cs.diff.hierarchy.ClassDictionary;
+import uk.ac.manchester.cs.diff.hierarchy.HierarchyReader;
+import uk.ac.manchester.cs.diff.hierarchy.SubsumptionAxiomSet;
+import uk.ac.manchester.cs.diff.hierarchy.SubsumptionClosure;
+import uk.ac.manchester.cs.diff.hierarchy.SubsumptionSet;
+import uk.ac.manchester.cs.diff.output.XMLReport;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Logical diff between two class hierarchies, i.e., sets of subsumptions between named classes as read by a
+ * {@link HierarchyReader}, which does not need a reasoner. Each subsumption in one hierarchy but not the other 
+ * is checked against the {@link SubsumptionClosure} of the other hierarchy, so a hierarchy given in full and one 
+ * given as a transitive reduction are found equivalent. Both hierarchies must use the same class dictionary.
+ * As in {@link LogicalDiff}, a change is ineffectual if it is entailed by the other hierarchy and its classes 
+ * occur there, and effectual changes pruned by {@link LogicalDiff#pruneChanges(Set)} are not reported.
+ * </p>
+ */
+public class HierarchyDiff implements AxiomDiff {
+	private SubsumptionSet ont1, ont2;
+	private ClassDictionary dictionary;
+	private OWLDataFactory df;
+	private LogicalChangeSet logicalChangeSet;
+	private boolean verbose;
+	
+	/**
+	 * Constructor
+	 * @param ont1	Class hierarchy of ontology 1
+	 * @param ont2	Class hierarchy of ontology 2
+	 * @param dictionary	Class dictionary of both hierarchies
+	 * @param verbose	true if all output messages should be printed, false otherwise
+	 */
+	public HierarchyDiff(SubsumptionSet ont1, SubsumptionSet ont2, ClassDictionary dictionary, boolean verbose) {
+		this.ont1 = ont1;
+		this.ont2 = ont2;
+		this.dictionary = dictionary;
+		this.verbose = verbose;
+		df = OWLManager.getOWLDataFactory();
+	}
+	
+	
+	/**
+	 * Get logical changes between class hierarchies
+	 * @return Logical change set
+	 */
+	public LogicalChangeSet getDiff() {
+		return getDiff(new CancellationToken());
+	}
+	
+	
+	/**
+	 * Get logical changes between class hierarchies, as far as they can be decided before the given token is cancelled
+	 * @param token	Cancellation token
+	 * @return Logical change set, including the changes left undecided if the token was cancelled
+	 */
+	public LogicalChangeSet getDiff(CancellationToken token) {
+		if(logicalChangeSet != null) return logicalChangeSet;
+		long start = System.nanoTime();
+		
+		if(verbose) System.out.print("Computing hierarchy diff... ");
+		
+		Set<OWLAxiom> effectualAdditions = new HashSet<OWLAxiom>(), ineffectualAdditions = new HashSet<OWLAxiom>();
+		Set<OWLAxiom> effectualRemovals = new HashSet<OWLAxiom>(), ineffectualRemovals = new HashSet<OWLAxiom>();
+		Set<OWLAxiom> undecidedAdditions = new HashSet<OWLAxiom>(), undecidedRemovals = new HashSet<OWLAxiom>();
+		getChanges(ont2, ont1, new SubsumptionClosure(ont1, dictionary), effectualAdditions, ineffectualAdditions, 
+				undecidedAdditions, token);
+		getChanges(ont1, ont2, new SubsumptionClosure(ont2, dictionary), effectualRemovals, ineffectualRemovals, 
+				undecidedRemovals, token);
+		
+		logicalChangeSet = new LogicalChangeSet(effectualAdditions, ineffectualAdditions, effectualRemovals, ineffectualRemovals,
+				undecidedAdditions, undecidedRemovals);
+		logicalChangeSet.setDiffTime((System.nanoTime() - start)/1000000000.0);
+		
+		if(verbose) { System.out.println("done"); printDiff(); }
+		return logicalChangeSet;
+	}
+	
+	
+	/**
+	 * Get the subsumptions in the given hierarchy that are not in the other one, split into effectual and
+	 * ineffectual changes. Once the given token is cancelled, the remaining changes are left undecided
+	 * @param from	Class hierarchy whose subsumptions are checked
+	 * @param other	Other class hierarchy
+	 * @param closure	Closure of the other class hierarchy
+	 * @param effectual	Set to which effectual changes are added
+	 * @param ineffectual	Set to which ineffectual changes are added
+	 * @param undecided	Set to which undecided changes are added
+	 * @param token	Cancellation token
+	 */
+	private void getChanges(SubsumptionSet from, SubsumptionSet other, SubsumptionClosure closure, 
+			Set<OWLAxiom> effectual, Set<OWLAxiom> ineffectual, Set<OWLAxiom> undecided, CancellationToken token) {
+		int thing = dictionary.getId(HierarchyReader.OWL + "Thing"), nothing = dictionary.getId(HierarchyReader.OWL + "Nothing");
+		boolean cancelled = false;
+		for(int i = 0; i < from.size(); i++) {
+			long edge = from.get(i);
+			int sub = SubsumptionSet.sub(edge), sup = SubsumptionSet.sup(edge);
+			if(!cancelled && i % 1024 == 0)
+				cancelled = token.isCancelled();
+			if(other.contains(sub, sup))
+				continue;
+			if(cancelled) {
+				if(sub != nothing && sup != thing)
+					undecided.add(SubsumptionAxiomSet.getAxiom(edge, dictionary, df));
+			}
+			else if(closure.inSignature(sub) && closure.inSignature(sup) && closure.isEntailed(sub, sup))
+				ineffectual.add(SubsumptionAxiomSet.getAxiom(edge, dictionary, df));
+			else if(sub != nothing && sup != thing)
+				effectual.add(SubsumptionAxiomSet.getAxiom(edge, dictionary, df));
+		}
+	}
+	
+	
+	/**
+	 * Print diff results
+	 */
+	public void printDiff() {
+		System.out.println("   Logical changes:" + 
+				"\n\tEffectual Additions: " + logicalChangeSet.getEffectualAdditionAxioms().size() +
+				"\n\tEffectual Removals: " + logicalChangeSet.getEffectualRemovalAxioms().size() + 
+				"\n\tIneffectual Additions: " + logicalChangeSet.getIneffectualAdditionAxioms().size() +
+				"\n\tIneffectual Removals: " + logicalChangeSet.getIneffectualRemovalAxioms().size());
+	}
+	
+	
+	/**
+	 * Get an XML change report for the change set computed by this diff. As the class hierarchies are not 
+	 * ontologies, the report is based on ontologies that contain only the removed and added axioms, respectively
+	 * @return XML change report object
+	 */
+	public XMLReport getXMLReport() {
+		if(logicalChangeSet == null) logicalChangeSet = getDiff();
+		OWLOntologyManager man = OWLManager.createOWLOntologyManager();
+		try {
+			Set<OWLAxiom> rems = new HashSet<OWLAxiom>(logicalChangeSet.getEffectualRemovalAxioms());
+			rems.addAll(logicalChangeSet.getIneffectualRemovalAxioms());
+			Set<OWLAxiom> adds = new HashSet<OWLAxiom>(logicalChangeSet.getEffectualAdditionAxioms());
+			adds.addAll(logicalChangeSet.getIneffectualAdditionAxioms());
+			OWLOntology remsOnt = man.createOntology(rems);
+			OWLOntology addsOnt = man.createOntology(adds);
+			return new XMLReport(remsOnt, addsOnt, logicalChangeSet);
+		} catch (OWLOntologyCreationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	
+	/**
+	 * Determine if class hierarchies are logically equivalent
+	 * @return true if class hierarchies are logically equivalent, false otherwise
+	 */
+	public boolean isEquivalent() {
+		if(logicalChangeSet == null) logicalChangeSet = getDiff();
+		if(logicalChangeSet.getEffectualAdditionAxioms().isEmpty() && logicalChangeSet.getEffectualRemovalAxioms().isEmpty()) 
+			return true;
+		else 
+			return false;
+	}
+}
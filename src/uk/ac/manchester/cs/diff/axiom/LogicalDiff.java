@@ -20,14 +20,22 @@ package uk.ac.manchester.cs.diff.axiom;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 import org.semanticweb.HermiT.Reasoner;
 import org.semanticweb.owlapi.model.AxiomType;
 import org.semanticweb.owlapi.model.OWLAxiom;
-import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import org.semanticweb.owlapi.reasoner.ReasonerInterruptedException;
 
 import uk.ac.manchester.cs.diff.axiom.changeset.LogicalChangeSet;
 import uk.ac.manchester.cs.diff.axiom.changeset.StructuralChangeSet;
@@ -40,6 +48,7 @@ import uk.ac.manchester.cs.diff.output.XMLReport;
  * University of Manchester <br/>
  */
 public class LogicalDiff implements AxiomDiff {
+	private static final long POLL_INTERVAL = 100000000;	// in nanoseconds
 	private OWLOntology ont1, ont2;
 	private StructuralChangeSet structChangeSet;
 	private LogicalChangeSet logicalChangeSet;
@@ -88,36 +97,107 @@ public class LogicalDiff implements AxiomDiff {
 
 	
 	/**
-	 * Get logical changes between ontologies
+	 * Get logical changes between ontologies. The ineffectual additions and removals are computed concurrently, 
+	 * each with its own reasoner
 	 * @return Logical change set
 	 */
 	public LogicalChangeSet getDiff() {
+		return getDiff(new CancellationToken());
+	}
+	
+	
+	/**
+	 * Get logical changes between ontologies, as far as they can be decided before the given token is cancelled.
+	 * The ineffectual additions and removals are computed concurrently, each with its own reasoner, and both sides
+	 * (including the reasoners' precomputation) are bounded by the token's deadline, if any, rather than by a 
+	 * separate time limit of their own
+	 * @param token	Cancellation token
+	 * @return Logical change set, including the changes left undecided if the token was cancelled 
+	 */
+	public LogicalChangeSet getDiff(CancellationToken token) {
 		if(logicalChangeSet != null) return logicalChangeSet;
+		long start = System.nanoTime();
 		if(structChangeSet == null) structChangeSet = new StructuralDiff(ont1, ont2, verbose).getDiff();
 		
-		if(ont1reasoner == null) ont1reasoner = new Reasoner(ont1);
-		if(ont2reasoner == null) ont2reasoner = new Reasoner(ont2);
-		
 		if(verbose) System.out.print("Computing logical diff... ");
 		
-		Set<OWLAxiom> ineffectualAdditions = getIneffectualChanges(structChangeSet.getAddedAxioms(), ont1reasoner);
+		IneffectualChanges additions = new IneffectualChanges(structChangeSet.getAddedAxioms(), ont1, ont1reasoner, token);
+		IneffectualChanges removals = new IneffectualChanges(structChangeSet.getRemovedAxioms(), ont2, ont2reasoner, token);
+		ExecutorService executor = Executors.newFixedThreadPool(2, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "logical-diff");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			Future<?> additionsResult = executor.submit(additions);
+			Future<?> removalsResult = executor.submit(removals);
+			await(additionsResult, additions, token);
+			await(removalsResult, removals, token);
+		} catch (RuntimeException e) {
+			additions.cancel();
+			removals.cancel();
+			throw e;
+		} finally {
+			executor.shutdownNow();
+		}
+		Set<OWLAxiom> ineffectualAdditions = additions.getIneffectual(), undecidedAdditions = additions.getUndecided();
 		Set<OWLAxiom> effectualAdditions = new HashSet<OWLAxiom>(structChangeSet.getAddedAxioms());
 		effectualAdditions.removeAll(ineffectualAdditions);
+		effectualAdditions.removeAll(undecidedAdditions);
 		
-		Set<OWLAxiom> ineffectualRemovals = getIneffectualChanges(structChangeSet.getRemovedAxioms(), ont2reasoner);
+		Set<OWLAxiom> ineffectualRemovals = removals.getIneffectual(), undecidedRemovals = removals.getUndecided();
 		Set<OWLAxiom> effectualRemovals = new HashSet<OWLAxiom>(structChangeSet.getRemovedAxioms());
 		effectualRemovals.removeAll(ineffectualRemovals);
+		effectualRemovals.removeAll(undecidedRemovals);
 		
 		effectualAdditions.removeAll(pruneChanges(effectualAdditions));
 		effectualRemovals.removeAll(pruneChanges(effectualRemovals));
+		undecidedAdditions.removeAll(pruneChanges(undecidedAdditions));
+		undecidedRemovals.removeAll(pruneChanges(undecidedRemovals));
 	
-		logicalChangeSet = new LogicalChangeSet(effectualAdditions, ineffectualAdditions, effectualRemovals, ineffectualRemovals);
+		logicalChangeSet = new LogicalChangeSet(effectualAdditions, ineffectualAdditions, effectualRemovals, ineffectualRemovals,
+				undecidedAdditions, undecidedRemovals);
+		logicalChangeSet.setDiffTime((System.nanoTime() - start)/1000000000.0);
 
 		if(verbose) { System.out.println("done"); printDiff(); }
 		return logicalChangeSet;
 	}
 	
 	
+	/**
+	 * Wait for one side of the diff to finish, or until the given token is cancelled (or its deadline passes), 
+	 * in which case the side is cancelled too
+	 * @param result	Result of the side
+	 * @param side	Side of the diff
+	 * @param token	Cancellation token
+	 */
+	private void await(Future<?> result, IneffectualChanges side, CancellationToken token) {
+		try {
+			while(!token.isCancelled()) {
+				try {
+					result.get(POLL_INTERVAL, TimeUnit.NANOSECONDS);
+					return;
+				} catch (TimeoutException e) {
+					// Check the token again
+				}
+			}
+			side.cancel();
+			result.cancel(true);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ReasonerInterruptedException(e);
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			else if(e.getCause() instanceof Error)
+				throw (Error)e.getCause();
+			throw new RuntimeException(e.getCause());
+		}
+	}
+	
+	
 	/**
 	 * Prune set of changes (for ORE)
 	 * @param axioms	Set of axioms
@@ -148,25 +228,6 @@ public class LogicalDiff implements AxiomDiff {
 	}
 	
 
-	/**
-	 * Get ineffectual changes
-	 * @param axioms	Set of axioms to check
-	 * @param ont	OWL ontology
-	 * @return Set of ineffectual changes
-	 */
-	private Set<OWLAxiom> getIneffectualChanges(Set<OWLAxiom> axioms, OWLReasoner reasoner) {
-		Set<OWLEntity> ontSig = reasoner.getRootOntology().getSignature();
-		Set<OWLAxiom> ineffectual = new HashSet<OWLAxiom>();
-		for(OWLAxiom axiom : axioms) {
-			if(ontSig.containsAll(axiom.getSignature())) {
-				if(reasoner.isEntailed(axiom))
-					ineffectual.add(axiom);
-			}
-		}
-		return ineffectual;
-	}
-	
-	
 	/**
 	 * Print diff results
 	 */
@@ -212,4 +273,87 @@ public class LogicalDiff implements AxiomDiff {
 		else
 			return new StructuralDiff(ont1, ont2, verbose).getDiff();
 	}
+	
+	
+	/**
+	 * One side of the logical diff, i.e., the ineffectual changes among the given axioms w.r.t. an ontology.
+	 * If no reasoner is given then a HermiT reasoner is created for the ontology (and disposed of once this side 
+	 * is done), and entailment checks are batched by an {@link EntailmentChecker} using as many HermiT instances 
+	 * as given by the system property 
+	 * <i>ore.diff.threads</i> (by default, 1). Each instance loads the whole ontology, and comparisons may already run 
+	 * concurrently (e.g., in the ResultComparator's thread pool, with both sides of each diff at once), so more 
+	 * instances should only be asked for where there is memory for all of them
+	 */
+	private class IneffectualChanges implements Runnable {
+		private Set<OWLAxiom> axioms;
+		private OWLOntology ont;
+		private CancellationToken token;
+		private volatile OWLReasoner reasoner;
+		private volatile EntailmentChecker checker;
+		private volatile boolean cancelled;
+		
+		/**
+		 * Constructor
+		 * @param axioms	Set of axioms to check
+		 * @param ont	OWL ontology
+		 * @param reasoner	Instance of a reasoner loaded with the ontology, or null if one should be created
+		 * @param token	Cancellation token
+		 */
+		public IneffectualChanges(Set<OWLAxiom> axioms, OWLOntology ont, OWLReasoner reasoner, CancellationToken token) {
+			this.axioms = axioms;
+			this.ont = ont;
+			this.reasoner = reasoner;
+			this.token = token;
+		}
+		
+		
+		@Override
+		public void run() {
+			OWLReasonerFactory factory = null;
+			OWLReasoner created = null;
+			try {
+				if(reasoner == null) {
+					if(cancelled || token.isCancelled()) return;
+					reasoner = created = new Reasoner(ont);
+					// cancel() cannot interrupt the reasoner while it is being constructed
+					if(cancelled || token.isCancelled()) return;
+					factory = new Reasoner.ReasonerFactory();
+				}
+				int threads = Integer.getInteger("ore.diff.threads", 1);
+				checker = new EntailmentChecker(reasoner, factory, threads);
+				if(cancelled) checker.cancel();
+				checker.getEntailed(axioms, token);
+			} finally {
+				if(created != null) created.dispose();
+			}
+		}
+		
+		
+		/**
+		 * Cancel this side of the diff, interrupting its reasoners
+		 */
+		public void cancel() {
+			cancelled = true;
+			if(checker != null) checker.cancel();
+			else if(reasoner != null) reasoner.interrupt();
+		}
+		
+		
+		/**
+		 * Get the axioms found to be ineffectual changes
+		 * @return Set of ineffectual changes
+		 */
+		public Set<OWLAxiom> getIneffectual() {
+			return (checker != null ? checker.getEntailed() : new HashSet<OWLAxiom>());
+		}
+		
+		
+		/**
+		 * Get the axioms that were not checked
+		 * @return Set of undecided changes
+		 */
+		public Set<OWLAxiom> getUndecided() {
+			return (checker != null ? checker.getUndecided(axioms) : new HashSet<OWLAxiom>(axioms));
+		}
+	}
 }
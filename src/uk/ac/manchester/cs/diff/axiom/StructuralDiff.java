@@ -97,6 +97,17 @@ public class StructuralDiff implements AxiomDiff {
 	}
 	
 	
+	/**
+	 * Get structural changes between ontologies. Being a single pass over the axioms, structural diff is not 
+	 * cancelled and always completes
+	 * @param token	Cancellation token (ignored)
+	 * @return Structural change set
+	 */
+	public StructuralChangeSet getDiff(CancellationToken token) {
+		return getDiff();
+	}
+	
+	
 	/**
 	 * Print diff results
 	 */
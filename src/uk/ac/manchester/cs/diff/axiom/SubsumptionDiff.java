@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.axiom;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyCreationException;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import uk.ac.manchester.cs.diff.axiom.changeset.StructuralChangeSet;
+import uk.ac.manchester.cs.diff.hierarchy.ClassDictionary;
+import uk.ac.manchester.cs.diff.hierarchy.HierarchyReader;
+import uk.ac.manchester.cs.diff.hierarchy.SubsumptionAxiomSet;
+import uk.ac.manchester.cs.diff.hierarchy.SubsumptionSet;
+import uk.ac.manchester.cs.diff.output.XMLReport;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Structural diff between two class hierarchies, i.e., sets of subsumptions between named classes as read by a
+ * {@link HierarchyReader}. Both hierarchies must use the same class dictionary. The sorted subsumption arrays are 
+ * merged in a single linear pass; only the added and removed subsumptions are turned into axioms, while the shared 
+ * ones are exposed as a {@link SubsumptionAxiomSet} view. As in {@link StructuralDiff}, subsumptions of owl:Thing 
+ * are not reported as changes.
+ * </p>
+ */
+public class SubsumptionDiff implements AxiomDiff {
+	private SubsumptionSet ont1, ont2;
+	private ClassDictionary dictionary;
+	private OWLDataFactory df;
+	private StructuralChangeSet changeSet;
+	private boolean verbose;
+	
+	/**
+	 * Constructor
+	 * @param ont1	Class hierarchy of ontology 1
+	 * @param ont2	Class hierarchy of ontology 2
+	 * @param dictionary	Class dictionary of both hierarchies
+	 * @param verbose	true if all output messages should be printed, false otherwise
+	 */
+	public SubsumptionDiff(SubsumptionSet ont1, SubsumptionSet ont2, ClassDictionary dictionary, boolean verbose) {
+		this.ont1 = ont1;
+		this.ont2 = ont2;
+		this.dictionary = dictionary;
+		this.verbose = verbose;
+		df = OWLManager.getOWLDataFactory();
+	}
+	
+	
+	/**
+	 * Get structural changes between class hierarchies
+	 * @return Structural change set
+	 */
+	public StructuralChangeSet getDiff() {
+		if(changeSet != null) return changeSet;
+		
+		if(verbose) System.out.print("Computing subsumption diff... ");
+		int thing = dictionary.getId(HierarchyReader.OWL + "Thing");
+		int n1 = ont1.size(), n2 = ont2.size(), i = 0, j = 0, nrShared = 0;
+		long[] shared = new long[Math.min(n1, n2)];
+		Set<OWLAxiom> additions = new HashSet<OWLAxiom>();
+		Set<OWLAxiom> removals = new HashSet<OWLAxiom>();
+		
+		while(i < n1 || j < n2) {
+			long e1 = (i < n1 ? ont1.get(i) : Long.MAX_VALUE), e2 = (j < n2 ? ont2.get(j) : Long.MAX_VALUE);
+			if(e1 < e2) {
+				if(SubsumptionSet.sup(e1) != thing)
+					removals.add(SubsumptionAxiomSet.getAxiom(e1, dictionary, df));
+				i++;
+			}
+			else if(e2 < e1) {
+				if(SubsumptionSet.sup(e2) != thing)
+					additions.add(SubsumptionAxiomSet.getAxiom(e2, dictionary, df));
+				j++;
+			}
+			else {
+				shared[nrShared++] = e1;
+				i++; j++;
+			}
+		}
+		
+		changeSet = new StructuralChangeSet(additions, removals, new SubsumptionAxiomSet(shared, nrShared, dictionary, df));
+		
+		if(verbose) { System.out.println("done"); printDiff(); }
+		return changeSet;
+	}
+	
+	
+	/**
+	 * Get structural changes between class hierarchies. Being a single pass over the axioms, structural diff is not 
+	 * cancelled and always completes
+	 * @param token	Cancellation token (ignored)
+	 * @return Structural change set
+	 */
+	public StructuralChangeSet getDiff(CancellationToken token) {
+		return getDiff();
+	}
+	
+	
+	/**
+	 * Print diff results
+	 */
+	public void printDiff() {
+		System.out.println("   Structural changes:" + 
+				"\n\tAdditions: " + changeSet.getAddedAxioms().size() +
+				"\n\tRemovals: " + changeSet.getRemovedAxioms().size() + 
+				"\n\tShared: " + changeSet.getShared().size());
+	}
+	
+	
+	/**
+	 * Get an XML change report for the change set computed by this diff. As the class hierarchies are not 
+	 * ontologies, the report is based on ontologies that contain only the removed and added axioms, respectively
+	 * @return XML change report object
+	 */
+	public XMLReport getXMLReport() {
+		if(changeSet == null) changeSet = getDiff();
+		OWLOntologyManager man = OWLManager.createOWLOntologyManager();
+		try {
+			OWLOntology rems = man.createOntology(changeSet.getRemovedAxioms());
+			OWLOntology adds = man.createOntology(changeSet.getAddedAxioms());
+			return new XMLReport(rems, adds, changeSet);
+		} catch (OWLOntologyCreationException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	
+	/**
+	 * Determine if class hierarchies are structurally equivalent (thus logically equivalent)
+	 * @return true if class hierarchies are structurally equivalent, false otherwise
+	 */
+	public boolean isEquivalent() {
+		if(changeSet == null) changeSet = getDiff();
+		
+		if(changeSet.isEmpty()) return true;
+		else return false;
+	}
+}
@@ -53,6 +53,13 @@ public interface ChangeSet {
 	public boolean isEmpty();
 	
 	
+	/**
+	 * Check if the diff was completed, i.e., no changes were left undecided
+	 * @return true if all changes were decided, false otherwise
+	 */
+	public boolean isComplete();
+	
+	
 	/**
 	 * Get the diff time 
 	 * @return Diff time
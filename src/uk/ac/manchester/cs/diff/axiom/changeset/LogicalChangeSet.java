@@ -18,6 +18,7 @@
  ******************************************************************************/
 package uk.ac.manchester.cs.diff.axiom.changeset;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -34,6 +35,7 @@ import uk.ac.manchester.cs.diff.axiom.change.LogicalRemoval;
  */
 public class LogicalChangeSet implements ChangeSet {
 	private Set<OWLAxiom> effectualAdditions, ineffectualAdditions, effectualRemovals, ineffectualRemovals;
+	private Set<OWLAxiom> undecidedAdditions, undecidedRemovals;
 	private double diffTime;
 	
 	/**
@@ -49,13 +51,32 @@ public class LogicalChangeSet implements ChangeSet {
 		this.ineffectualAdditions = ineffectualAdditions;
 		this.effectualRemovals = effectualRemovals;
 		this.ineffectualRemovals = ineffectualRemovals;
+		this.undecidedAdditions = Collections.emptySet();
+		this.undecidedRemovals = Collections.emptySet();
+	}
+	
+	
+	/**
+	 * Constructor for a diff that was not completed
+	 * @param effectualAdditions	Effectual additions
+	 * @param ineffectualAdditions	Ineffectual additions
+	 * @param effectualRemovals	Effectual removals
+	 * @param ineffectualRemovals	Ineffectual removals
+	 * @param undecidedAdditions	Additions not known to be effectual or ineffectual
+	 * @param undecidedRemovals	Removals not known to be effectual or ineffectual
+	 */
+	public LogicalChangeSet(Set<OWLAxiom> effectualAdditions, Set<OWLAxiom> ineffectualAdditions, 
+			Set<OWLAxiom> effectualRemovals, Set<OWLAxiom> ineffectualRemovals, 
+			Set<OWLAxiom> undecidedAdditions, Set<OWLAxiom> undecidedRemovals) {
+		this(effectualAdditions, ineffectualAdditions, effectualRemovals, ineffectualRemovals);
+		this.undecidedAdditions = undecidedAdditions;
+		this.undecidedRemovals = undecidedRemovals;
 	}
 	
 	
 	/**
 	 * Set diff time 
-	 * @param time	Diff time
-	 * @deprecated
+	 * @param time	Wall-clock time (in seconds) spent in logical diff
 	 */
 	public void setDiffTime(double time) {
 		diffTime = time;
@@ -63,8 +84,8 @@ public class LogicalChangeSet implements ChangeSet {
 	
 	
 	/**
-	 * Get the CPU time (in seconds) spent in structural diff
-	 * @return CPU time (in seconds) spent in structural diff
+	 * Get the wall-clock time (in seconds) spent in logical diff
+	 * @return Wall-clock time (in seconds) spent in logical diff
 	 */
 	public double getDiffTime() {
 		return diffTime;
@@ -135,13 +156,40 @@ public class LogicalChangeSet implements ChangeSet {
 	}
 	
 	
+	/**
+	 * Get the set of additions that were left undecided, i.e., not known to be effectual or ineffectual
+	 * @return Set of undecided addition axioms
+	 */
+	public Set<OWLAxiom> getUndecidedAdditionAxioms() {
+		return undecidedAdditions;
+	}
+	
+	
+	/**
+	 * Get the set of removals that were left undecided, i.e., not known to be effectual or ineffectual
+	 * @return Set of undecided removal axioms
+	 */
+	public Set<OWLAxiom> getUndecidedRemovalAxioms() {
+		return undecidedRemovals;
+	}
+	
+	
+	/**
+	 * Check if the diff was completed, i.e., no changes were left undecided
+	 * @return true if all changes were decided, false otherwise
+	 */
+	public boolean isComplete() {
+		return undecidedAdditions.isEmpty() && undecidedRemovals.isEmpty();
+	}
+	
+	
 	/**
 	 * Check if change set contains no changes
 	 * @return true if change set contains no changes, false otherwise
 	 */
 	public boolean isEmpty() {
 		if(effectualAdditions.isEmpty() && effectualRemovals.isEmpty() 
-				&& ineffectualAdditions.isEmpty() && ineffectualAdditions.isEmpty())
+				&& ineffectualAdditions.isEmpty() && ineffectualAdditions.isEmpty() && isComplete())
 			return true;
 		else
 			return false;
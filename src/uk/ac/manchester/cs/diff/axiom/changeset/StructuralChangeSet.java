@@ -122,6 +122,15 @@ public class StructuralChangeSet implements ChangeSet {
 	}
 	
 	
+	/**
+	 * Check if the diff was completed, which is always the case for structural diffs
+	 * @return true
+	 */
+	public boolean isComplete() {
+		return true;
+	}
+	
+	
 	/**
 	 * Get the set of added axioms
 	 * @return Set of added axioms
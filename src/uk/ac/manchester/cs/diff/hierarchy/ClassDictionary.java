@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.hierarchy;
+
+import java.util.Arrays;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Dictionary of class IRIs, which maps each IRI to a dense integer identifier (0, 1, 2, ...). IRIs can be looked
+ * up directly from a character buffer, so that looking up a known IRI does not allocate a string. The same
+ * dictionary should be used for all hierarchies that are to be compared, and it can be shared between threads.
+ * </p>
+ */
+public class ClassDictionary {
+	private String[] iris;
+	private int[] table;
+	private int size;
+
+	/**
+	 * Constructor
+	 */
+	public ClassDictionary() {
+		iris = new String[1024];
+		table = new int[2048];
+	}
+
+
+	/**
+	 * Get the identifier of the given class IRI, adding it to the dictionary if necessary
+	 * @param iri	Class IRI
+	 * @return Class identifier
+	 */
+	public int getId(String iri) {
+		return getId(iri.toCharArray(), 0, iri.length());
+	}
+
+
+	/**
+	 * Get the identifier of the class IRI in the given region of a character buffer, adding it to the dictionary
+	 * if necessary
+	 * @param buf	Character buffer
+	 * @param off	Offset of the IRI
+	 * @param len	Length of the IRI
+	 * @return Class identifier
+	 */
+	public synchronized int getId(char[] buf, int off, int len) {
+		int h = 0;
+		for(int i = off; i < off+len; i++)
+			h = 31*h + buf[i];
+		int mask = table.length-1, slot = spread(h) & mask;
+		while(table[slot] != 0) {
+			String iri = iris[table[slot]-1];
+			if(matches(iri, buf, off, len))
+				return table[slot]-1;
+			slot = (slot+1) & mask;
+		}
+		if(size == iris.length)
+			iris = Arrays.copyOf(iris, 2*size);
+		iris[size] = new String(buf, off, len);
+		table[slot] = ++size;
+		if(2*size > table.length)
+			rehash();
+		return size-1;
+	}
+
+
+	/**
+	 * Get the identifier of the given class IRI, without adding it to the dictionary
+	 * @param iri	Class IRI
+	 * @return Class identifier, or -1 if the IRI is not in the dictionary
+	 */
+	public synchronized int find(String iri) {
+		int mask = table.length-1, slot = spread(iri.hashCode()) & mask;
+		while(table[slot] != 0) {
+			if(iris[table[slot]-1].equals(iri))
+				return table[slot]-1;
+			slot = (slot+1) & mask;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Get the class IRI with the given identifier
+	 * @param id	Class identifier
+	 * @return Class IRI
+	 */
+	public synchronized String getIri(int id) {
+		return iris[id];
+	}
+
+
+	/**
+	 * Get the number of classes in the dictionary
+	 * @return Number of classes
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+
+	/**
+	 * Double the size of the hash table
+	 */
+	private void rehash() {
+		table = new int[2*table.length];
+		int mask = table.length-1;
+		for(int id = 0; id < size; id++) {
+			int slot = spread(iris[id].hashCode()) & mask;
+			while(table[slot] != 0)
+				slot = (slot+1) & mask;
+			table[slot] = id+1;
+		}
+	}
+
+
+	/**
+	 * Spread the bits of a string hash code, as linear probing only uses its lower bits
+	 * @param h	Hash code
+	 * @return Spread hash code
+	 */
+	private static int spread(int h) {
+		h *= 0x9e3779b9;
+		return h ^ (h >>> 16);
+	}
+
+
+	/**
+	 * Check whether the given string equals the given region of a character buffer
+	 * @param s	String
+	 * @param buf	Character buffer
+	 * @param off	Offset
+	 * @param len	Length
+	 * @return true if the string equals the buffer region, false otherwise
+	 */
+	private static boolean matches(String s, char[] buf, int off, int len) {
+		if(s.length() != len)
+			return false;
+		for(int i = 0; i < len; i++)
+			if(s.charAt(i) != buf[off+i]) return false;
+		return true;
+	}
+}
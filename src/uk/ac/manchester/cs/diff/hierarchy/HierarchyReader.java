@@ -0,0 +1,383 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.hierarchy;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Streaming reader of inferred class hierarchies in functional syntax, i.e., files consisting of <i>SubClassOf</i>
+ * and <i>EquivalentClasses</i> axioms between named classes. Class IRIs are interned in a {@link ClassDictionary},
+ * and the subsumptions are collected in a {@link SubsumptionSet}, without creating any OWL API objects; equivalences
+ * are split into subsumptions both ways. The <i>Ontology(..)</i> statement is optional. Non-logical axioms, as
+ * well as the role and assertion axioms that are ignored when comparing classification results, are skipped.
+ * Files containing anything else (e.g., complex class expressions or annotated axioms) are not hierarchies.
+ * </p>
+ */
+public class HierarchyReader {
+	public static final String OWL = "http://www.w3.org/2002/07/owl#";
+	private static final int EOF = 0, LPAREN = 1, RPAREN = 2, IRI = 3, NAME = 4, LITERAL = 5;
+	private static final String[] ignored = {"Declaration", "AnnotationAssertion", "SubAnnotationPropertyOf", 
+		"AnnotationPropertyDomain", "AnnotationPropertyRange", "Import", "Annotation", "SubObjectPropertyOf", 
+		"EquivalentObjectProperties", "DisjointObjectProperties", "TransitiveObjectProperty", "SubDataPropertyOf", 
+		"EquivalentDataProperties", "DisjointDataProperties", "DatatypeDefinition", "ClassAssertion", 
+		"ObjectPropertyAssertion", "NegativeObjectPropertyAssertion", "DataPropertyAssertion", 
+		"NegativeDataPropertyAssertion", "SameIndividual", "DifferentIndividuals"};
+	private ClassDictionary dictionary;
+	private Reader reader;
+	private char[] in, tok, exp;
+	private int pos, limit, tokLen;
+	private String[] prefixNames, prefixIris;
+	private int nrPrefixes;
+	private int[] args;
+
+	/**
+	 * Constructor
+	 * @param dictionary	Class dictionary
+	 */
+	public HierarchyReader(ClassDictionary dictionary) {
+		this.dictionary = dictionary;
+		in = new char[1<<16];
+		tok = new char[256];
+		exp = new char[256];
+		args = new int[8];
+	}
+
+
+	/**
+	 * Read the class hierarchy in the given file
+	 * @param f	File
+	 * @return Set of subsumptions, or null if the file is not a class hierarchy in functional syntax
+	 * @throws IOException
+	 */
+	public SubsumptionSet read(File f) throws IOException {
+		Reader r = new InputStreamReader(new FileInputStream(f), "UTF-8");
+		try {
+			return read(r);
+		} finally {
+			r.close();
+		}
+	}
+
+
+	/**
+	 * Read the class hierarchy from the given reader
+	 * @param r	Reader
+	 * @return Set of subsumptions, or null if the input is not a class hierarchy in functional syntax
+	 * @throws IOException
+	 */
+	public SubsumptionSet read(Reader r) throws IOException {
+		open(r);
+		SubsumptionSet set = new SubsumptionSet();
+		boolean inOntology = false;
+		int t;
+		while((t = next()) != EOF) {
+			if(t == RPAREN && inOntology)
+				inOntology = false;
+			else if(t == IRI && inOntology)		// Ontology and version IRIs
+				continue;
+			else if(t != NAME)
+				return null;
+			else if(tokIs("SubClassOf") || tokIs("EquivalentClasses")) {
+				boolean equivalence = tokIs("EquivalentClasses");
+				if(next() != LPAREN || !readClassAxiom(set, equivalence)) return null;
+			}
+			else if(tokIs("Prefix")) {
+				if(next() != LPAREN || !readPrefix()) return null;
+			}
+			else if(tokIs("Ontology") && !inOntology) {
+				if(next() != LPAREN) return null;
+				inOntology = true;
+			}
+			else if(isIgnored()) {
+				if(next() != LPAREN) return null;
+				skipGroup();
+			}
+			else
+				return null;
+		}
+		set.compact();
+		return set;
+	}
+
+
+	/**
+	 * Check whether the given functional syntax file lacks the <i>Ontology(..)</i> statement, i.e., whether 
+	 * the first statement after the prefix declarations is an axiom
+	 * @param f	File
+	 * @return true if the file is in functional syntax and has no ontology statement, false otherwise
+	 * @throws IOException
+	 */
+	public static boolean isHeaderless(File f) throws IOException {
+		HierarchyReader r = new HierarchyReader(null);
+		Reader reader = new InputStreamReader(new FileInputStream(f), "UTF-8");
+		try {
+			r.open(reader);
+			int t;
+			while((t = r.next()) == NAME && r.tokIs("Prefix")) {
+				if(r.next() != LPAREN) return false;
+				r.skipGroup();
+			}
+			return (t == EOF || (t == NAME && !r.tokIs("Ontology") && r.next() == LPAREN));
+		} finally {
+			reader.close();
+		}
+	}
+
+
+	/**
+	 * Start reading from the given reader
+	 * @param r	Reader
+	 */
+	private void open(Reader r) {
+		reader = r;
+		pos = 0;
+		limit = 0;
+		prefixNames = new String[8];
+		prefixIris = new String[8];
+		nrPrefixes = 0;
+		addPrefix("owl:", OWL);
+		addPrefix("rdf:", "http://www.w3.org/1999/02/22-rdf-syntax-ns#");
+		addPrefix("rdfs:", "http://www.w3.org/2000/01/rdf-schema#");
+		addPrefix("xsd:", "http://www.w3.org/2001/XMLSchema#");
+		addPrefix("xml:", "http://www.w3.org/XML/1998/namespace");
+	}
+
+
+	/**
+	 * Read the arguments of a subsumption or equivalence between named classes, and add the corresponding subsumptions
+	 * @param set	Set of subsumptions
+	 * @param equivalence	true if the axiom is an equivalence, false if it is a subsumption
+	 * @return true if all arguments are named classes, false otherwise
+	 * @throws IOException
+	 */
+	private boolean readClassAxiom(SubsumptionSet set, boolean equivalence) throws IOException {
+		int nrArgs = 0, t;
+		while((t = next()) == IRI || t == NAME) {
+			int id = (t == IRI ? dictionary.getId(tok, 0, tokLen) : resolve());
+			if(id == -1) return false;
+			if(nrArgs == args.length) args = Arrays.copyOf(args, 2*nrArgs);
+			args[nrArgs++] = id;
+		}
+		if(t != RPAREN || nrArgs < 2 || (!equivalence && nrArgs != 2))
+			return false;
+		if(equivalence) {
+			for(int i = 0; i < nrArgs; i++)
+				for(int j = 0; j < nrArgs; j++)
+					if(i != j) set.add(args[i], args[j]);
+		}
+		else
+			set.add(args[0], args[1]);
+		return true;
+	}
+
+
+	/**
+	 * Read the remainder of a prefix declaration
+	 * @return true if the prefix declaration is well-formed, false otherwise
+	 * @throws IOException
+	 */
+	private boolean readPrefix() throws IOException {
+		String name = "";
+		int t;
+		while((t = next()) == NAME)
+			name += new String(tok, 0, tokLen);
+		if(t != IRI || !name.endsWith("="))
+			return false;
+		addPrefix(name.substring(0, name.length()-1), new String(tok, 0, tokLen));
+		return next() == RPAREN;
+	}
+
+
+	/**
+	 * Add (or replace) a prefix
+	 * @param name	Prefix name, including the colon
+	 * @param iri	Prefix IRI
+	 */
+	private void addPrefix(String name, String iri) {
+		for(int i = 0; i < nrPrefixes; i++) {
+			if(prefixNames[i].equals(name)) {
+				prefixIris[i] = iri;
+				return;
+			}
+		}
+		if(nrPrefixes == prefixNames.length) {
+			prefixNames = Arrays.copyOf(prefixNames, 2*nrPrefixes);
+			prefixIris = Arrays.copyOf(prefixIris, 2*nrPrefixes);
+		}
+		prefixNames[nrPrefixes] = name;
+		prefixIris[nrPrefixes++] = iri;
+	}
+
+
+	/**
+	 * Get the identifier of the class denoted by the abbreviated IRI in the token buffer
+	 * @return Class identifier, or -1 if the token is not an abbreviated IRI with a known prefix
+	 */
+	private int resolve() {
+		int colon = 0;
+		while(colon < tokLen && tok[colon] != ':') colon++;
+		if(colon == tokLen)
+			return -1;
+		for(int i = 0; i < nrPrefixes; i++) {
+			String name = prefixNames[i];
+			if(name.length() == colon+1 && regionMatches(name, 0)) {
+				String iri = prefixIris[i];
+				int len = iri.length() + tokLen - colon - 1;
+				if(len > exp.length) exp = new char[2*len];
+				iri.getChars(0, iri.length(), exp, 0);
+				System.arraycopy(tok, colon+1, exp, iri.length(), tokLen-colon-1);
+				return dictionary.getId(exp, 0, len);
+			}
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Check whether the name in the token buffer is that of a skipped axiom type
+	 * @return true if the axiom should be skipped, false otherwise
+	 */
+	private boolean isIgnored() {
+		for(String s : ignored)
+			if(tokIs(s)) return true;
+		return false;
+	}
+
+
+	/**
+	 * Check whether the token buffer holds the given string
+	 * @param s	String
+	 * @return true if the token is the given string, false otherwise
+	 */
+	private boolean tokIs(String s) {
+		return s.length() == tokLen && regionMatches(s, 0);
+	}
+
+
+	/**
+	 * Check whether the given string occurs in the token buffer at the given offset
+	 * @param s	String
+	 * @param off	Offset
+	 * @return true if the string occurs at the offset, false otherwise
+	 */
+	private boolean regionMatches(String s, int off) {
+		for(int i = 0; i < s.length(); i++)
+			if(tok[off+i] != s.charAt(i)) return false;
+		return true;
+	}
+
+
+	/**
+	 * Skip the remainder of a parenthesised group whose opening parenthesis has been read
+	 * @throws IOException
+	 */
+	private void skipGroup() throws IOException {
+		int depth = 1, t;
+		while(depth > 0 && (t = next()) != EOF) {
+			if(t == LPAREN) depth++;
+			else if(t == RPAREN) depth--;
+		}
+	}
+
+
+	/**
+	 * Read the next token: parentheses, full IRIs (whose contents are left in the token buffer), quoted strings, 
+	 * and names (i.e., keywords or abbreviated IRIs, also left in the token buffer), skipping whitespace and comments
+	 * @return Token type
+	 * @throws IOException
+	 */
+	private int next() throws IOException {
+		int c = read();
+		while(c == '#' || (c != -1 && Character.isWhitespace(c))) {
+			if(c == '#')
+				while(c != -1 && c != '\n') c = read();
+			c = read();
+		}
+		tokLen = 0;
+		switch(c) {
+		case -1: return EOF;
+		case '(': return LPAREN;
+		case ')': return RPAREN;
+		case '<':
+			while((c = read()) != -1 && c != '>') append(c);
+			return IRI;
+		case '"':
+			while((c = read()) != -1 && c != '"')
+				if(c == '\\') read();
+			return LITERAL;
+		default:
+			append(c);
+			while((c = peek()) != -1 && c != '(' && c != ')' && c != '<' && c != '"' && c != '#' && !Character.isWhitespace(c)) {
+				append(c);
+				pos++;
+			}
+			return NAME;
+		}
+	}
+
+
+	/**
+	 * Append a character to the token buffer
+	 * @param c	Character
+	 */
+	private void append(int c) {
+		if(tokLen == tok.length) tok = Arrays.copyOf(tok, 2*tokLen);
+		tok[tokLen++] = (char)c;
+	}
+
+
+	/**
+	 * Read the next character
+	 * @return Next character, or -1 if the end of the input has been reached
+	 * @throws IOException
+	 */
+	private int read() throws IOException {
+		int c = peek();
+		if(c != -1) pos++;
+		return c;
+	}
+
+
+	/**
+	 * Get the next character without consuming it
+	 * @return Next character, or -1 if the end of the input has been reached
+	 * @throws IOException
+	 */
+	private int peek() throws IOException {
+		if(pos == limit) {
+			limit = reader.read(in, 0, in.length);
+			pos = 0;
+			if(limit <= 0) {
+				limit = 0;
+				return -1;
+			}
+		}
+		return in[pos];
+	}
+}
@@ -0,0 +1,116 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.hierarchy;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
+import org.semanticweb.owlapi.model.OWLClassExpression;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Read-only view of a sorted array of subsumptions (as given by {@link SubsumptionSet#edge(int, int)}) as a set of
+ * <i>SubClassOf</i> axioms. Axioms are only created while iterating over the set, so that large sets of, e.g.,
+ * shared axioms do not need to be materialised.
+ * </p>
+ */
+public class SubsumptionAxiomSet extends AbstractSet<OWLAxiom> {
+	private long[] edges;
+	private int size;
+	private ClassDictionary dictionary;
+	private OWLDataFactory df;
+
+	/**
+	 * Constructor
+	 * @param edges	Sorted array of distinct subsumptions
+	 * @param size	Number of subsumptions in the array
+	 * @param dictionary	Class dictionary
+	 * @param df	OWL data factory
+	 */
+	public SubsumptionAxiomSet(long[] edges, int size, ClassDictionary dictionary, OWLDataFactory df) {
+		this.edges = edges;
+		this.size = size;
+		this.dictionary = dictionary;
+		this.df = df;
+	}
+
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+
+	@Override
+	public boolean contains(Object o) {
+		if(!(o instanceof OWLSubClassOfAxiom) || ((OWLSubClassOfAxiom)o).isAnnotated())
+			return false;
+		OWLClassExpression sub = ((OWLSubClassOfAxiom)o).getSubClass(), sup = ((OWLSubClassOfAxiom)o).getSuperClass();
+		if(sub.isAnonymous() || sup.isAnonymous())
+			return false;
+		int subId = dictionary.find(sub.asOWLClass().getIRI().toString()), supId = dictionary.find(sup.asOWLClass().getIRI().toString());
+		if(subId == -1 || supId == -1)
+			return false;
+		return Arrays.binarySearch(edges, 0, size, SubsumptionSet.edge(subId, supId)) >= 0;
+	}
+
+
+	@Override
+	public Iterator<OWLAxiom> iterator() {
+		return new Iterator<OWLAxiom>() {
+			private int i = 0;
+
+			public boolean hasNext() {
+				return i < size;
+			}
+
+			public OWLAxiom next() {
+				if(i == size) throw new NoSuchElementException();
+				return getAxiom(edges[i++], dictionary, df);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+
+	/**
+	 * Get the SubClassOf axiom corresponding to the given subsumption
+	 * @param edge	Subsumption
+	 * @param dictionary	Class dictionary
+	 * @param df	OWL data factory
+	 * @return SubClassOf axiom
+	 */
+	public static OWLSubClassOfAxiom getAxiom(long edge, ClassDictionary dictionary, OWLDataFactory df) {
+		return df.getOWLSubClassOfAxiom(df.getOWLClass(IRI.create(dictionary.getIri(SubsumptionSet.sub(edge)))), 
+				df.getOWLClass(IRI.create(dictionary.getIri(SubsumptionSet.sup(edge)))));
+	}
+}
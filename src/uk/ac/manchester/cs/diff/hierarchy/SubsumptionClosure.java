@@ -0,0 +1,141 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.hierarchy;
+
+import java.util.BitSet;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Reachability index over a {@link SubsumptionSet}, which decides the subsumptions entailed by a class hierarchy
+ * without a reasoner. As the subsumptions are sorted by subclass, the told superclasses of each class are found
+ * by binary search, and the superclasses of a class in the transitive closure are collected in a bit set by a 
+ * depth-first traversal. So the hierarchy may be given either in full (transitively closed) or as a transitive
+ * reduction, and both yield the same entailments. Besides reachability, the index accounts for subsumptions 
+ * implied by unsatisfiable classes (those subsumed by owl:Nothing) and by classes equivalent to owl:Thing.
+ * <br/><br/>
+ * The superclasses of the most recently queried class are kept, so that queries should be grouped by subclass,
+ * as is the case when iterating over a subsumption set. Instances are not thread-safe.
+ * </p>
+ */
+public class SubsumptionClosure {
+	private SubsumptionSet set;
+	private int thing, nothing, current, depth;
+	private int[] stack;
+	private BitSet signature, ancestors, topAncestors;
+
+	/**
+	 * Constructor
+	 * @param set	Set of subsumptions
+	 * @param dictionary	Class dictionary of the subsumption set
+	 */
+	public SubsumptionClosure(SubsumptionSet set, ClassDictionary dictionary) {
+		this.set = set;
+		thing = dictionary.getId(HierarchyReader.OWL + "Thing");
+		nothing = dictionary.getId(HierarchyReader.OWL + "Nothing");
+		stack = new int[64];
+		signature = new BitSet();
+		for(int i = 0; i < set.size(); i++) {
+			signature.set(SubsumptionSet.sub(set.get(i)));
+			signature.set(SubsumptionSet.sup(set.get(i)));
+		}
+		topAncestors = new BitSet();
+		collectAncestors(thing, topAncestors);
+		ancestors = new BitSet();
+		current = -1;
+	}
+
+
+	/**
+	 * Check whether the given subsumption is entailed by the hierarchy
+	 * @param sub	Subclass identifier
+	 * @param sup	Superclass identifier
+	 * @return true if the subsumption is entailed, false otherwise
+	 */
+	public boolean isEntailed(int sub, int sup) {
+		if(sub == sup || sup == thing || sub == nothing || topAncestors.get(sup) || topAncestors.get(nothing))
+			return true;
+		BitSet anc = getAncestors(sub);
+		return anc.get(sup) || anc.get(nothing);
+	}
+
+
+	/**
+	 * Check whether the given class occurs in the hierarchy
+	 * @param c	Class identifier
+	 * @return true if the class occurs in some subsumption, false otherwise
+	 */
+	public boolean inSignature(int c) {
+		return signature.get(c);
+	}
+
+
+	/**
+	 * Get the (reflexive) superclasses of the given class in the transitive closure of the hierarchy
+	 * @param c	Class identifier
+	 * @return Bit set of superclass identifiers
+	 */
+	private BitSet getAncestors(int c) {
+		if(c != current) {
+			ancestors.clear();
+			collectAncestors(c, ancestors);
+			current = c;
+		}
+		return ancestors;
+	}
+
+
+	/**
+	 * Collect the (reflexive) superclasses of the given class by depth-first traversal of the told subsumptions
+	 * @param c	Class identifier
+	 * @param out	Bit set to which the superclass identifiers are added
+	 */
+	private void collectAncestors(int c, BitSet out) {
+		depth = 0;
+		out.set(c);
+		push(c);
+		while(depth > 0) {
+			int sub = stack[--depth];
+			for(int i = set.indexOf(sub); i < set.size() && SubsumptionSet.sub(set.get(i)) == sub; i++) {
+				int sup = SubsumptionSet.sup(set.get(i));
+				if(!out.get(sup)) {
+					out.set(sup);
+					push(sup);
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Push the given class onto the traversal stack
+	 * @param c	Class identifier
+	 */
+	private void push(int c) {
+		if(depth == stack.length) {
+			int[] grown = new int[2*stack.length];
+			System.arraycopy(stack, 0, grown, 0, depth);
+			stack = grown;
+		}
+		stack[depth++] = c;
+	}
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.hierarchy;
+
+import java.util.Arrays;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Compact set of subsumptions between named classes, identified by their {@link ClassDictionary} identifiers.
+ * Each subsumption is stored as a single long (subclass in the upper, superclass in the lower 32 bits), and once
+ * the set is complete the subsumptions are kept sorted and without duplicates.
+ * </p>
+ */
+public class SubsumptionSet {
+	private long[] edges;
+	private int size;
+	private boolean sorted;
+
+	/**
+	 * Constructor
+	 */
+	public SubsumptionSet() {
+		edges = new long[1024];
+		sorted = true;
+	}
+
+
+	/**
+	 * Constructor
+	 * @param edges	Array of subsumptions, as given by {@link #edge(int, int)}, which is owned by the set thereafter
+	 * @param size	Number of subsumptions in the array
+	 */
+	public SubsumptionSet(long[] edges, int size) {
+		this.edges = edges;
+		this.size = size;
+		sorted = false;
+	}
+
+
+	/**
+	 * Add a subsumption to the set
+	 * @param sub	Subclass identifier
+	 * @param sup	Superclass identifier
+	 */
+	public void add(int sub, int sup) {
+		if(size == edges.length)
+			edges = Arrays.copyOf(edges, 2*size);
+		edges[size++] = edge(sub, sup);
+		sorted = false;
+	}
+
+
+	/**
+	 * Sort the subsumptions and remove duplicates. This is done implicitly by all read operations
+	 */
+	public void compact() {
+		if(sorted) return;
+		Arrays.sort(edges, 0, size);
+		int n = 0;
+		for(int i = 0; i < size; i++)
+			if(n == 0 || edges[i] != edges[n-1]) edges[n++] = edges[i];
+		size = n;
+		sorted = true;
+	}
+
+
+	/**
+	 * Get the number of (distinct) subsumptions
+	 * @return Number of subsumptions
+	 */
+	public int size() {
+		compact();
+		return size;
+	}
+
+
+	/**
+	 * Get the subsumption at the given position, in ascending order
+	 * @param i	Position
+	 * @return Subsumption
+	 */
+	public long get(int i) {
+		compact();
+		return edges[i];
+	}
+
+
+	/**
+	 * Check whether the given subsumption is in the set
+	 * @param sub	Subclass identifier
+	 * @param sup	Superclass identifier
+	 * @return true if the set contains the subsumption, false otherwise
+	 */
+	public boolean contains(int sub, int sup) {
+		compact();
+		return Arrays.binarySearch(edges, 0, size, edge(sub, sup)) >= 0;
+	}
+
+
+	/**
+	 * Get the position of the first subsumption of the given subclass, in ascending order
+	 * @param sub	Subclass identifier
+	 * @return Position of the first subsumption whose subclass is the given one, or of the first one whose 
+	 * subclass comes after it if there is none
+	 */
+	public int indexOf(int sub) {
+		compact();
+		int i = Arrays.binarySearch(edges, 0, size, edge(sub, 0));
+		return (i >= 0 ? i : -i-1);
+	}
+
+
+	/**
+	 * Encode the subsumption between the given classes as a long
+	 * @param sub	Subclass identifier
+	 * @param sup	Superclass identifier
+	 * @return Subsumption
+	 */
+	public static long edge(int sub, int sup) {
+		return ((long)sub << 32) | (sup & 0xffffffffL);
+	}
+
+
+	/**
+	 * Get the subclass of the given subsumption
+	 * @param edge	Subsumption
+	 * @return Subclass identifier
+	 */
+	public static int sub(long edge) {
+		return (int)(edge >>> 32);
+	}
+
+
+	/**
+	 * Get the superclass of the given subsumption
+	 * @param edge	Subsumption
+	 * @return Superclass identifier
+	 */
+	public static int sup(long edge) {
+		return (int)edge;
+	}
+}
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.output;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.semanticweb.owlapi.model.OWLEntity;
+import org.semanticweb.owlapi.util.SimpleShortFormProvider;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Entity name short forms of the entities that the gensyms and labels based short form providers have no 
+ * mapping for. These are computed by a single, stateless {@link SimpleShortFormProvider}, and cached in a 
+ * concurrent map shared by all providers, which is cleared whenever it reaches its capacity.
+ * </p>
+ */
+final class FallbackShortForms {
+	private static final int CAPACITY = 1 << 16;
+	private static final SimpleShortFormProvider sf = new SimpleShortFormProvider();
+	private static final ConcurrentMap<OWLEntity,String> cache = new ConcurrentHashMap<OWLEntity,String>();
+	
+	private FallbackShortForms() {}
+	
+	
+	/**
+	 * Get the entity name short form of the given entity
+	 * @param e	Entity
+	 * @return Short form
+	 */
+	static String getShortForm(OWLEntity e) {
+		String output = cache.get(e);
+		if(output == null) {
+			output = sf.getShortForm(e);
+			if(cache.size() >= CAPACITY) cache.clear();
+			cache.put(e, output);
+		}
+		return output;
+	}
+}
@@ -18,22 +18,29 @@
  ******************************************************************************/
 package uk.ac.manchester.cs.diff.output;
 
-import java.util.HashMap;
+import java.util.Map;
 
 import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.util.ShortFormProvider;
-import org.semanticweb.owlapi.util.SimpleShortFormProvider;
 
 /**
  * @author Rafael S. Goncalves <br/>
  * Information Management Group (IMG) <br/>
  * School of Computer Science <br/>
  * University of Manchester <br/>
+ * <p>
+ * Short form provider based on a map of entities to auto generated symbols. The map is not modified 
+ * after construction, so the provider can be shared by several threads.
+ * </p>
  */
 public class GenSymShortFormProvider implements ShortFormProvider {
-	private HashMap<OWLEntity,String> map;
+	private final Map<OWLEntity,String> map;
 	
-	public GenSymShortFormProvider(HashMap<OWLEntity,String> map) {
+	/**
+	 * Constructor
+	 * @param map	Map of entities to gensyms, which should not be modified afterwards
+	 */
+	public GenSymShortFormProvider(Map<OWLEntity,String> map) {
 		this.map = map;
 	}
 	
@@ -44,12 +51,7 @@ public class GenSymShortFormProvider implements ShortFormProvider {
 
 	@Override
 	public String getShortForm(OWLEntity arg0) {
-		String output = "";
-		SimpleShortFormProvider fp = new SimpleShortFormProvider();
-		if(map.get(arg0) != null)
-			output = map.get(arg0);
-		else
-			output = fp.getShortForm(arg0);
-		return output;
+		String output = map.get(arg0);
+		return (output != null ? output : FallbackShortForms.getShortForm(arg0));
 	}
 }
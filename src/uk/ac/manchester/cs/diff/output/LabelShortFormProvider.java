@@ -18,29 +18,30 @@
  ******************************************************************************/
 package uk.ac.manchester.cs.diff.output;
 
-import java.util.HashMap;
+import java.util.Map;
 
 import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.util.ShortFormProvider;
-import org.semanticweb.owlapi.util.SimpleShortFormProvider;
 
 /**
  * @author Rafael S. Goncalves <br/>
  * Information Management Group (IMG) <br/>
  * School of Computer Science <br/>
  * University of Manchester <br/>
+ * <p>
+ * Short form provider based on a map of entities to their rdfs:label. The map is not modified 
+ * after construction, so the provider can be shared by several threads.
+ * </p>
  */
 public class LabelShortFormProvider implements ShortFormProvider {
-	private HashMap<OWLEntity,String> map;
-	private SimpleShortFormProvider fp;
+	private final Map<OWLEntity,String> map;
 	
 	/**
 	 * Constructor
-	 * @param map
+	 * @param map	Map of entities to labels, which should not be modified afterwards
 	 */
-	public LabelShortFormProvider(HashMap<OWLEntity,String> map) {
+	public LabelShortFormProvider(Map<OWLEntity,String> map) {
 		this.map = map;
-		fp = new SimpleShortFormProvider();
 	}
 	
 	@Override
@@ -50,11 +51,7 @@ public class LabelShortFormProvider implements ShortFormProvider {
 
 	@Override
 	public String getShortForm(OWLEntity arg0) {
-		String output = "";
-		if(map.get(arg0) != null)
-			output = map.get(arg0);
-		else
-			output = fp.getShortForm(arg0);	
-		return output;
+		String output = map.get(arg0);
+		return (output != null ? output : FallbackShortForms.getShortForm(arg0));
 	}
 }
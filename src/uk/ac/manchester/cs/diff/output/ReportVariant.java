@@ -0,0 +1,56 @@
+/*******************************************************************************
+ * This file is part of ecco.
+ * 
+ * ecco is distributed under the terms of the GNU Lesser General Public License (LGPL), Version 3.0.
+ *  
+ * Copyright 2011-2013, The University of Manchester
+ *  
+ * ecco is free software: you can redistribute it and/or modify it under the terms of the GNU Lesser
+ * General Public License as published by the Free Software Foundation, either version 3 of the 
+ * License, or (at your option) any later version.
+ *  
+ * ecco is distributed in the hope that it will be useful, but WITHOUT ANY WARRANTY; without even 
+ * the implied warranty of MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU Lesser 
+ * General Public License for more details.
+ *  
+ * You should have received a copy of the GNU Lesser General Public License along with ecco.
+ * If not, see http://www.gnu.org/licenses/.
+ ******************************************************************************/
+package uk.ac.manchester.cs.diff.output;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Variants of the XML change report, according to how entities are referred to in the rendered axioms
+ * </p>
+ */
+public enum ReportVariant {
+	/** Entities referred to by their (IRI fragment) names */
+	ENTITY_NAMES(""),
+	/** Entities referred to by automatically generated symbols */
+	GENSYMS("-gs"),
+	/** Entities referred to by their rdfs:label, where available */
+	LABELS("-lbl");
+	
+	private final String suffix;
+	
+	/**
+	 * Constructor
+	 * @param suffix	Suffix for the report identifier and file name
+	 */
+	private ReportVariant(String suffix) {
+		this.suffix = suffix;
+	}
+	
+	
+	/**
+	 * Get the suffix for the report identifier and file name of this variant
+	 * @return Suffix, which is empty for the entity name based report
+	 */
+	public String getSuffix() {
+		return suffix;
+	}
+}
@@ -18,19 +18,37 @@
  ******************************************************************************/
 package uk.ac.manchester.cs.diff.output;
 
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerException;
@@ -59,6 +77,23 @@ import uk.ac.manchester.cs.owl.owlapi.mansyntaxrenderer.ManchesterOWLSyntaxObjec
  * Information Management Group (IMG) <br/>
  * School of Computer Science <br/>
  * University of Manchester <br/>
+ * <p>
+ * XML change report of a change set, where axioms are rendered in Manchester syntax with entities referred to 
+ * according to a {@link ReportVariant}. The report can either be built as a DOM document, or streamed straight 
+ * to an output stream with {@link #writeReport(OutputStream, ReportVariant)}, which writes each change as soon 
+ * as it is rendered, so that no document tree is held in memory.
+ * <br/><br/>
+ * Each report, whether built as a DOM document or streamed, is written within a write pass, in which each set of 
+ * axioms is sorted only once (however many variants are written together), and the entity name renderings 
+ * computed as sort keys are reused by the entity name variant, so that no axiom is rendered twice with the same 
+ * short form provider. The sort keys are discarded once the pass is over, and all other renderings are computed 
+ * as each change is written, so that the memory held by a streamed report does not grow with the renderings of 
+ * its changes. The gensym and label maps are only built when a report variant that needs them is first 
+ * requested, and then only for the entities in the signature of the change set.
+ * <br/><br/>
+ * Several variants can be written concurrently with {@link #writeReports(Map, int)}: the changes are sorted and 
+ * numbered once, upfront, and the resulting change lists are then only read by the threads writing the reports.
+ * </p>
  */
 public class XMLReport {
 	private final String uuid = UUID.randomUUID().toString();
@@ -68,6 +103,8 @@ public class XMLReport {
 	private Document doc, genSymDoc, labelDoc;
 	private HashMap<OWLEntity, String> genSymMap, labelMap;
 	private HashMap<OWLAxiom,Integer> axiomIds;
+	private Map<Set<OWLAxiom>,List<OWLAxiom>> sortedSets;
+	private volatile Map<OWLAxiom,String> sortKeys;
 	private OWLOntology ont1, ont2;
 	private OWLDataFactory df;
 	private DocumentBuilderFactory dbfac;
@@ -92,7 +129,8 @@ public class XMLReport {
 		
 	
 	/**
-	 * Initialise labels and gensyms maps, and short form providers
+	 * Initialise the document builder and the entity name short form provider; the gensyms and labels 
+	 * based short form providers are only initialised when needed
 	 */
 	private void initMapsAndSFPs() {
 		try {
@@ -101,13 +139,99 @@ public class XMLReport {
 			e.printStackTrace();
 		}
 		df = ont1.getOWLOntologyManager().getOWLDataFactory();
-		genSymMap = new HashMap<OWLEntity,String>();
-		labelMap = new HashMap<OWLEntity, String>();
 		sf = new SimpleShortFormProvider();
-		generateGenSyms(); 		// Prep gen syms output
-		mapLabels(ont1); mapLabels(ont2);		// Prep labels output
-		gp = new GenSymShortFormProvider(genSymMap);
-		lp = new LabelShortFormProvider(labelMap);
+	}
+	
+	
+	/**
+	 * Get the auto generated symbols based short form provider, generating the gensyms of the entities 
+	 * in the change set on first use
+	 * @return Gensyms based short form provider
+	 */
+	private synchronized GenSymShortFormProvider getGenSymProvider() {
+		if(gp == null) {
+			genSymMap = new HashMap<OWLEntity,String>();
+			generateGenSyms(getChangeSignature());
+			gp = new GenSymShortFormProvider(genSymMap);
+		}
+		return gp;
+	}
+	
+	
+	/**
+	 * Get the rdfs:label based short form provider, mapping the entities in the change set to their labels 
+	 * on first use
+	 * @return Labels based short form provider
+	 */
+	private synchronized LabelShortFormProvider getLabelProvider() {
+		if(lp == null) {
+			labelMap = new HashMap<OWLEntity,String>();
+			Set<OWLEntity> ents = getChangeSignature();
+			mapLabels(ont1, ents); mapLabels(ont2, ents);
+			lp = new LabelShortFormProvider(labelMap);
+		}
+		return lp;
+	}
+	
+	
+	/**
+	 * Get the signature of the axioms in the change set, in a fixed order
+	 * @return Set of entities
+	 */
+	private Set<OWLEntity> getChangeSignature() {
+		Set<OWLEntity> ents = new TreeSet<OWLEntity>();
+		for(Set<OWLAxiom> set : getReportedSets()) {
+			for(OWLAxiom ax : set)
+				ents.addAll(ax.getSignature());
+		}
+		return ents;
+	}
+	
+	
+	/**
+	 * Get the sets of axioms of the change set that are reported, in the order they appear in the report
+	 * @return List of sets of axioms
+	 */
+	private List<Set<OWLAxiom>> getReportedSets() {
+		List<Set<OWLAxiom>> sets = new ArrayList<Set<OWLAxiom>>();
+		if(changeSet instanceof StructuralChangeSet) {
+			StructuralChangeSet cs = (StructuralChangeSet)changeSet;
+			sets.add(cs.getAddedAxioms()); sets.add(cs.getRemovedAxioms()); sets.add(cs.getShared());
+		}
+		else if(changeSet instanceof LogicalChangeSet) {
+			LogicalChangeSet cs = (LogicalChangeSet)changeSet;
+			sets.add(cs.getEffectualAdditionAxioms()); sets.add(cs.getIneffectualAdditionAxioms());
+			sets.add(cs.getEffectualRemovalAxioms()); sets.add(cs.getIneffectualRemovalAxioms());
+		}
+		return sets;
+	}
+	
+	
+	/**
+	 * Sort all reported sets of axioms and number their changes, in the order they appear in the report, so 
+	 * that the change identifiers do not depend on the order in which concurrent report variants are written. 
+	 * The sorted sets and their sort keys are kept until {@link #releaseChanges()}, unless a write pass is 
+	 * already under way, in which case its changes are reused
+	 * @return true if a new write pass was started, which the caller should then release, false otherwise
+	 */
+	private synchronized boolean prepareChanges() {
+		if(sortedSets != null) return false;
+		sortedSets = new IdentityHashMap<Set<OWLAxiom>,List<OWLAxiom>>();
+		sortKeys = new HashMap<OWLAxiom,String>();
+		for(Set<OWLAxiom> set : getReportedSets()) {
+			for(OWLAxiom ax : sortAxioms(set))
+				getChangeId(ax);
+		}
+		return true;
+	}
+	
+	
+	/**
+	 * Discard the sorted sets and sort keys kept since {@link #prepareChanges()}
+	 */
+	private synchronized void releaseChanges() {
+		sortedSets = null;
+		sortKeys = null;
 	}
 	
 	
@@ -118,13 +242,7 @@ public class XMLReport {
 	public Document getXMLDocumentReport() {
 		doc = docBuilder.newDocument();
 		prepDocument(doc, "");
-		
-		if(changeSet instanceof StructuralChangeSet)
-			return getStructuralChangeSetReport((StructuralChangeSet)changeSet, doc, sf);
-		else if(changeSet instanceof LogicalChangeSet)
-			return getLogicalChangeSetReport((LogicalChangeSet)changeSet, doc, sf);
-		else
-			throw new Error("Invalid change set");
+		return getChangeSetReport(doc, sf);
 	}
 	
 	
@@ -135,12 +253,7 @@ public class XMLReport {
 	public Document getXMLDocumentReportUsingLabels() {	
 		labelDoc = docBuilder.newDocument();
 		prepDocument(labelDoc, "-lbl");
-		if(changeSet instanceof StructuralChangeSet)
-			return getStructuralChangeSetReport((StructuralChangeSet)changeSet, labelDoc, lp);
-		else if(changeSet instanceof LogicalChangeSet)
-			return getLogicalChangeSetReport((LogicalChangeSet)changeSet, labelDoc, lp);
-		else
-			throw new Error("Invalid change set");
+		return getChangeSetReport(labelDoc, getLabelProvider());
 	}
 	
 	
@@ -151,13 +264,29 @@ public class XMLReport {
 	public Document getXMLDocumentReportUsingGenSyms() {
 		genSymDoc = docBuilder.newDocument();
 		prepDocument(genSymDoc, "-gs");
-		
-		if(changeSet instanceof StructuralChangeSet)
-			return getStructuralChangeSetReport((StructuralChangeSet)changeSet, genSymDoc, gp);
-		else if(changeSet instanceof LogicalChangeSet)
-			return getLogicalChangeSetReport((LogicalChangeSet)changeSet, genSymDoc, gp);
-		else
-			throw new Error("Invalid change set");
+		return getChangeSetReport(genSymDoc, getGenSymProvider());
+	}
+	
+	
+	/**
+	 * Get the XML report of the change set within a write pass, so that each axiom is rendered with the entity 
+	 * name short form provider only once, both as its sort key and, for the entity name report, as its output
+	 * @param d	XML document
+	 * @param sf	Short form provider
+	 * @return XML report of the change set
+	 */
+	private Document getChangeSetReport(Document d, ShortFormProvider sf) {
+		boolean prepared = prepareChanges();
+		try {
+			if(changeSet instanceof StructuralChangeSet)
+				return getStructuralChangeSetReport((StructuralChangeSet)changeSet, d, sf);
+			else if(changeSet instanceof LogicalChangeSet)
+				return getLogicalChangeSetReport((LogicalChangeSet)changeSet, d, sf);
+			else
+				throw new Error("Invalid change set");
+		} finally {
+			if(prepared) releaseChanges();
+		}
 	}
 	
 	
@@ -172,7 +301,7 @@ public class XMLReport {
 		if(axiomIds == null) axiomIds = new HashMap<OWLAxiom,Integer>();
 		addElementAndChildren("Additions", "adds", changeSet.getAddedAxioms(), doc, "root", true, sf);
 		addElementAndChildren("Removals", "rems", changeSet.getRemovedAxioms(), doc, "root", true, sf);
-		addElementAndChildren("Shared", "shared", changeSet.getRemovedAxioms(), doc, "root", true, sf);
+		addElementAndChildren("Shared", "shared", changeSet.getShared(), doc, "root", true, sf);
 		return doc;
 	}
 	
@@ -211,15 +340,24 @@ public class XMLReport {
 	private void addElementAndChildren(String name, String id, Set<OWLAxiom> set, Document d, String parent, boolean includeSize, ShortFormProvider sf) {
 		addElement(name, id, set.size(), d, parent, includeSize);
 		List<OWLAxiom> orderedList = sortAxioms(set);
-		for(OWLAxiom ax : orderedList) {
-			if(axiomIds.containsKey(ax))
-				addAxiomChange(axiomIds.get(ax) + "", ax, d, id, sf);
-			else {
-				addAxiomChange(changeNr + "", ax, d, id, sf);
-				axiomIds.put(ax, changeNr);
-				changeNr++;
-			}
+		for(OWLAxiom ax : orderedList)
+			addAxiomChange(getChangeId(ax) + "", ax, d, id, sf);
+	}
+	
+	
+	/**
+	 * Get the identifier of the change of the given axiom, which is the same across all report variants
+	 * @param ax	Axiom
+	 * @return Change identifier
+	 */
+	private synchronized int getChangeId(OWLAxiom ax) {
+		if(axiomIds == null) axiomIds = new HashMap<OWLAxiom,Integer>();
+		Integer id = axiomIds.get(ax);
+		if(id == null) {
+			id = changeNr++;
+			axiomIds.put(ax, id);
 		}
+		return id;
 	}
 	
 
@@ -244,7 +382,7 @@ public class XMLReport {
 		if(sharedAxioms != null && sharedAxioms.contains(axiom))
 			axEle.setAttribute("shared", "true");
 		
-		axEle.setTextContent(getManchesterRendering(axiom, sf));
+		axEle.setTextContent(getRendering(axiom, sf));
 		ele.appendChild(axEle);
 	}
 	
@@ -287,6 +425,20 @@ public class XMLReport {
 	}
 	
 	
+	/**
+	 * Get the Manchester syntax rendering of the given axiom with the given short form provider, reusing its 
+	 * sort key if the axiom was sorted in the current write pass and the provider is the entity name one
+	 * @param ax	Axiom
+	 * @param sf	Short form provider
+	 * @return A string with the axiom's conversion to Manchester syntax
+	 */
+	private String getRendering(OWLAxiom ax, ShortFormProvider sf) {
+		Map<OWLAxiom,String> keys = sortKeys;
+		String str = (keys != null && sf == this.sf ? keys.get(ax) : null);
+		return (str != null ? str : getManchesterRendering(ax, sf));
+	}
+	
+	
 	/**
 	 * Get Manchester syntax of an OWL object
 	 * @param obj	OWL object
@@ -305,6 +457,264 @@ public class XMLReport {
 	}
 	
 	
+	/**
+	 * Write the XML change report of the given variant to the given stream, one change at a time. The stream 
+	 * is flushed but not closed
+	 * @param out	Output stream
+	 * @param variant	Report variant
+	 * @throws XMLStreamException
+	 */
+	public void writeReport(OutputStream out, ReportVariant variant) throws XMLStreamException {
+		ShortFormProvider provider = getShortFormProvider(variant);
+		boolean prepared = prepareChanges();
+		try {
+			writeChangeSetReport(out, variant, provider);
+		} finally {
+			if(prepared) releaseChanges();
+		}
+	}
+	
+	
+	/**
+	 * Write the XML change report of the given variant to the given stream, within a write pass
+	 * @param out	Output stream
+	 * @param variant	Report variant
+	 * @param provider	Short form provider of the variant
+	 * @throws XMLStreamException
+	 */
+	private void writeChangeSetReport(OutputStream out, ReportVariant variant, ShortFormProvider provider) throws XMLStreamException {
+		XMLStreamWriter w = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+		w.writeStartDocument("UTF-8", "1.0");
+		newLine(w, 0);
+		w.writeStartElement("root");
+		w.writeAttribute("id", "root");
+		w.writeAttribute("uuid", uuid + variant.getSuffix());
+		if(changeSet instanceof StructuralChangeSet) {
+			StructuralChangeSet cs = (StructuralChangeSet)changeSet;
+			writeChanges(w, "Additions", "adds", cs.getAddedAxioms(), 1, provider);
+			writeChanges(w, "Removals", "rems", cs.getRemovedAxioms(), 1, provider);
+			writeChanges(w, "Shared", "shared", cs.getShared(), 1, provider);
+		}
+		else if(changeSet instanceof LogicalChangeSet) {
+			LogicalChangeSet cs = (LogicalChangeSet)changeSet;
+			writeStartElement(w, "Additions", "adds", 
+					cs.getEffectualAdditionAxioms().size() + cs.getIneffectualAdditionAxioms().size(), 1);
+			writeChanges(w, "Effectual", "effadds", cs.getEffectualAdditionAxioms(), 2, provider);
+			writeChanges(w, "Ineffectual", "ineffadds", cs.getIneffectualAdditionAxioms(), 2, provider);
+			newLine(w, 1);
+			w.writeEndElement();
+			
+			writeStartElement(w, "Removals", "rems", 
+					cs.getEffectualRemovalAxioms().size() + cs.getIneffectualRemovalAxioms().size(), 1);
+			writeChanges(w, "Effectual", "effrems", cs.getEffectualRemovalAxioms(), 2, provider);
+			writeChanges(w, "Ineffectual", "ineffrems", cs.getIneffectualRemovalAxioms(), 2, provider);
+			newLine(w, 1);
+			w.writeEndElement();
+		}
+		else
+			throw new Error("Invalid change set");
+		newLine(w, 0);
+		w.writeEndElement();
+		w.writeEndDocument();
+		w.writeCharacters("\n");
+		w.flush();
+		w.close();
+	}
+	
+	
+	/**
+	 * Write the XML change reports of the given variants to files in the given folder, named after the given 
+	 * base name plus the suffix of each variant, e.g., <i>name-gs.xml</i> for the gensyms based report
+	 * @param folder	Output folder, which is created if necessary
+	 * @param name	Base file name
+	 * @param variants	Report variants
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public void writeReports(File folder, String name, Set<ReportVariant> variants) throws IOException, XMLStreamException {
+		writeReports(folder, name, variants, 1);
+	}
+	
+	
+	/**
+	 * Write the XML change reports of the given variants to files in the given folder, named after the given 
+	 * base name plus the suffix of each variant, using up to the given number of threads
+	 * @param folder	Output folder, which is created if necessary
+	 * @param name	Base file name
+	 * @param variants	Report variants
+	 * @param threads	Maximum number of reports written concurrently
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public void writeReports(File folder, String name, Set<ReportVariant> variants, int threads) throws IOException, XMLStreamException {
+		folder.mkdirs();
+		Map<ReportVariant,OutputStream> outs = new EnumMap<ReportVariant,OutputStream>(ReportVariant.class);
+		try {
+			for(ReportVariant variant : variants)
+				outs.put(variant, new BufferedOutputStream(new FileOutputStream(new File(folder, name + variant.getSuffix() + ".xml"))));
+			writeReports(outs, threads);
+		} finally {
+			for(OutputStream out : outs.values())
+				out.close();
+		}
+	}
+	
+	
+	/**
+	 * Write the XML change reports of the given variants to their respective output streams, using up to the 
+	 * given number of threads. The streams are flushed but not closed
+	 * @param outs	Map of report variants to output streams
+	 * @param threads	Maximum number of reports written concurrently
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	public void writeReports(Map<ReportVariant,OutputStream> outs, int threads) throws IOException, XMLStreamException {
+		boolean prepared = prepareChanges();
+		try {
+			for(ReportVariant variant : outs.keySet())
+				getShortFormProvider(variant);
+			writePreparedReports(outs, Math.max(1, Math.min(threads, outs.size())));
+		} finally {
+			if(prepared) releaseChanges();
+		}
+	}
+	
+	
+	/**
+	 * Write the XML change reports of the given variants to their respective output streams, once their 
+	 * changes have been prepared
+	 * @param outs	Map of report variants to output streams
+	 * @param threads	Number of reports written concurrently
+	 * @throws IOException
+	 * @throws XMLStreamException
+	 */
+	private void writePreparedReports(Map<ReportVariant,OutputStream> outs, int threads) throws IOException, XMLStreamException {
+		if(threads == 1) {
+			for(Map.Entry<ReportVariant,OutputStream> e : outs.entrySet())
+				writeReport(e.getValue(), e.getKey());
+			return;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "xml-report");
+				t.setDaemon(true);
+				return t;
+			}
+		});
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+			for(final Map.Entry<ReportVariant,OutputStream> e : outs.entrySet()) {
+				futures.add(executor.submit(new Callable<Void>() {
+					public Void call() throws XMLStreamException {
+						writeReport(e.getValue(), e.getKey());
+						return null;
+					}
+				}));
+			}
+			for(Future<?> f : futures)
+				f.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while writing XML reports");
+		} catch (ExecutionException e) {
+			if(e.getCause() instanceof XMLStreamException)
+				throw (XMLStreamException)e.getCause();
+			else if(e.getCause() instanceof RuntimeException)
+				throw (RuntimeException)e.getCause();
+			else if(e.getCause() instanceof Error)
+				throw (Error)e.getCause();
+			else
+				throw new IOException(e.getCause());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	
+	/**
+	 * Write an element with the given name, identifier and number of children axioms, along with the 
+	 * changes of those axioms
+	 * @param w	XML stream writer
+	 * @param name	Name of the element
+	 * @param id	Id of the element
+	 * @param set	Set of children axioms
+	 * @param depth	Depth of the element
+	 * @param sf	Short form provider
+	 * @throws XMLStreamException
+	 */
+	private void writeChanges(XMLStreamWriter w, String name, String id, Set<OWLAxiom> set, int depth, ShortFormProvider sf) 
+			throws XMLStreamException {
+		if(set.isEmpty()) {
+			newLine(w, depth);
+			w.writeEmptyElement(name);
+			w.writeAttribute("id", id);
+			w.writeAttribute("size", "0");
+			return;
+		}
+		writeStartElement(w, name, id, set.size(), depth);
+		for(OWLAxiom ax : sortAxioms(set)) {
+			newLine(w, depth+1);
+			w.writeStartElement("Change");
+			w.writeAttribute("id", getChangeId(ax) + "");
+			newLine(w, depth+2);
+			w.writeStartElement("Axiom");
+			if(sharedAxioms != null && sharedAxioms.contains(ax))
+				w.writeAttribute("shared", "true");
+			w.writeCharacters(getRendering(ax, sf));
+			w.writeEndElement();
+			newLine(w, depth+1);
+			w.writeEndElement();
+		}
+		newLine(w, depth);
+		w.writeEndElement();
+	}
+	
+	
+	/**
+	 * Write the start of an element with the given name, identifier and number of children axioms
+	 * @param w	XML stream writer
+	 * @param name	Name of the element
+	 * @param id	Id of the element
+	 * @param size	Size of the elements children (axioms)
+	 * @param depth	Depth of the element
+	 * @throws XMLStreamException
+	 */
+	private void writeStartElement(XMLStreamWriter w, String name, String id, int size, int depth) throws XMLStreamException {
+		newLine(w, depth);
+		w.writeStartElement(name);
+		w.writeAttribute("id", id);
+		w.writeAttribute("size", "" + size);
+	}
+	
+	
+	/**
+	 * Start a new, indented line
+	 * @param w	XML stream writer
+	 * @param depth	Indentation depth
+	 * @throws XMLStreamException
+	 */
+	private void newLine(XMLStreamWriter w, int depth) throws XMLStreamException {
+		StringBuilder sb = new StringBuilder("\n");
+		for(int i = 0; i < depth; i++)
+			sb.append("    ");
+		w.writeCharacters(sb.toString());
+	}
+	
+	
+	/**
+	 * Get the short form provider of the given report variant
+	 * @param variant	Report variant
+	 * @return Short form provider
+	 */
+	private ShortFormProvider getShortFormProvider(ReportVariant variant) {
+		switch(variant) {
+		case GENSYMS: return getGenSymProvider();
+		case LABELS: return getLabelProvider();
+		default: return sf;
+		}
+	}
+	
+	
 	/**
 	 * Get XML document as a string
 	 * @param doc	XML document
@@ -353,12 +763,13 @@ public class XMLReport {
 	
 	
 	/**
-	 * Map entities to their respective rdfs:label, where applicable
+	 * Map the given entities to their respective rdfs:label in the given ontology, where applicable
 	 * @param ont	Ontology
+	 * @param ents	Set of entities
 	 */
-	private void mapLabels(OWLOntology ont) {
-		Set<OWLEntity> ents = ont.getSignature();
+	private void mapLabels(OWLOntology ont, Set<OWLEntity> ents) {
 		for(OWLEntity e : ents) {
+			if(!ont.containsEntityInSignature(e)) continue;
 			Set<OWLAnnotation> labels = e.getAnnotations(ont, df.getRDFSLabel());
 			if(!labels.isEmpty()) {
 				for(OWLAnnotation a : labels) {
@@ -379,36 +790,40 @@ public class XMLReport {
 	
 	
 	/**
-	 * Sort a given set of axioms into a list
+	 * Sort a given set of axioms into a list, ordered by their entity name based rendering, and then by the 
+	 * OWL API ordering of axioms that render the same. Within a write pass, the sorted list is computed once 
+	 * per set and shared by all report variants, and the renderings are kept as sort keys
 	 * @param set	Set of axioms
-	 * @param sf	Short form provider
-	 * @return List of ordered axioms 
+	 * @return Unmodifiable list of ordered axioms 
 	 */
-	private List<OWLAxiom> sortAxioms(Set<OWLAxiom> set) {
-		Map<String,OWLAxiom> map = new HashMap<String,OWLAxiom>();
-		for(OWLAxiom axiom : set) {
-			String ax = getManchesterRendering(axiom, sf);
-			map.put(ax, axiom);
-		}
-		List<String> axStrings = new ArrayList<String>(map.keySet());
-		Collections.sort(axStrings);
-		
-		List<OWLAxiom> output = new ArrayList<OWLAxiom>();
-		for(String s : axStrings) {
-			output.add(map.get(s));
+	private synchronized List<OWLAxiom> sortAxioms(Set<OWLAxiom> set) {
+		List<OWLAxiom> output = (sortedSets != null ? sortedSets.get(set) : null);
+		if(output == null) {
+			output = new ArrayList<OWLAxiom>(set);
+			final Map<OWLAxiom,String> keys = (sortKeys != null ? sortKeys : new HashMap<OWLAxiom,String>());
+			for(OWLAxiom ax : output) {
+				if(!keys.containsKey(ax))
+					keys.put(ax, getManchesterRendering(ax, sf));
+			}
+			Collections.sort(output, new Comparator<OWLAxiom>() {
+				@Override
+				public int compare(OWLAxiom ax1, OWLAxiom ax2) {
+					int c = keys.get(ax1).compareTo(keys.get(ax2));
+					return (c != 0 ? c : ax1.compareTo(ax2));
+				}
+			});
+			output = Collections.unmodifiableList(output);
+			if(sortedSets != null) sortedSets.put(set, output);
 		}
 		return output;
 	}
 	
 	
 	/**
-	 * Generate GenSyms for entities
+	 * Generate GenSyms for the given entities
+	 * @param entSet	Set of entities
 	 */
-	private void generateGenSyms() {
-		HashSet<OWLEntity> entSet = new HashSet<OWLEntity>();
-		entSet.addAll(ont1.getSignature());
-		entSet.addAll(ont2.getSignature());
-		
+	private void generateGenSyms(Set<OWLEntity> entSet) {
 		int classCounter = 0, propCounter = 0, indCounter = 0;
 		char curChar1 = 'A', curChar2 = 'A', curChar3 = 'A';
 		boolean twoChars = false, threeChars = false;
@@ -1,6 +1,8 @@
 package uk.ac.manchester.cs.ore;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
@@ -30,6 +32,16 @@ public class InputVerifier {
 	
 	public InputVerifier(){}
 	
+	
+	/**
+	 * Constructor for verifying parameters against an already loaded ontology
+	 * @param ont	OWL ontology
+	 */
+	public InputVerifier(OWLOntology ont) {
+		this.ont = ont;
+	}
+	
+	
 	/**
 	 * Check whether the given operation is a valid one
 	 * @param op	operation name
@@ -37,14 +49,14 @@ public class InputVerifier {
 	 */
 	public boolean isValidOperation(String op) {
 		boolean isValid = false;
-		List<String> ops = Arrays.asList("sat","query","classification","consistency");
+		List<String> ops = Arrays.asList("sat","sat-batch","query","classification","consistency");
 		for(String s : ops) {
 			if(s.equalsIgnoreCase(op)) {
 				isValid = true; break;
 			}
 		}
 		if(!isValid)
-			System.err.println("\tInvalid operation name '" + op + "'. It must be one of: [ classification | sat | query | consistency ]");
+			System.err.println("\tInvalid operation name '" + op + "'. It must be one of: [ classification | sat | sat-batch | query | consistency ]");
 		
 		return isValid;
 	}
@@ -91,6 +103,37 @@ public class InputVerifier {
 	}
 	
 	
+	/**
+	 * Check whether the given concept list file exists, is non-empty, and all of its concept URIs 
+	 * (one per line) exist in the ontology signature
+	 * @param conceptList	Concept list file path
+	 * @return true if all concepts in the list exist in the ontology, false otherwise
+	 */
+	public boolean isValidConceptList(String conceptList) {
+		boolean isValid = true, isEmpty = true;
+		try {
+			BufferedReader br = new BufferedReader(new FileReader(conceptList));
+			String line;
+			while((line = br.readLine()) != null) {
+				line = line.trim();
+				if(!line.isEmpty()) {
+					isEmpty = false;
+					if(!isValidConceptName(line)) isValid = false;
+				}
+			}
+			br.close();
+		} catch (IOException e) {
+			System.err.println("\tUnable to read concept list file '" + conceptList + "'");
+			return false;
+		}
+		if(isEmpty) {
+			System.err.println("\tThe concept list file '" + conceptList + "' is empty");
+			isValid = false;
+		}
+		return isValid;
+	}
+	
+	
 	/**
 	 * Determine the output file exists (if not create it) and is writable (if not, make it so)
 	 * @param outFile	Output file
@@ -115,11 +158,11 @@ public class InputVerifier {
 	 * 0	Operation name
 	 * 1	Ontology file path
 	 * 2	Output file path
-	 * 3	[where applicable] concept URI or query file path
+	 * 3	[where applicable] concept URI, concept list file path (for sat-batch) or query file path
 	 */
 	public static void main(String[] args) {
 		if(args.length < 3) {
-			System.err.println("\tEmpty or incomplete argument list. Arguments must be: <Operation> <OntologyFile> <Output> (<Concept> | <QueryFile>)");
+			System.err.println("\tEmpty or incomplete argument list. Arguments must be: <Operation> <OntologyFile> <Output> (<Concept> | <ConceptList> | <QueryFile>)");
 			System.exit(0);
 		}
 		
@@ -154,5 +197,11 @@ public class InputVerifier {
 				if(isValidConceptURI) System.out.println("Valid parameters");
 			}
 		}
+		
+		// Batch satisfiability
+		else if(operation.equalsIgnoreCase("sat-batch")) {
+			if(args.length < 4) System.err.println("\tA concept list file is required for batch satisfiability testing");
+			else if(iv.isValidConceptList(args[3])) System.out.println("Valid parameters");
+		}
 	}
 }
\ No newline at end of file
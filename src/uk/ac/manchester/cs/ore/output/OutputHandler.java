@@ -1,12 +1,21 @@
 package uk.ac.manchester.cs.ore.output;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileReader;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.StringTokenizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import uk.ac.manchester.cs.ore.results.Column;
+import uk.ac.manchester.cs.ore.results.ResultRecord;
+import uk.ac.manchester.cs.ore.results.ResultSink;
+import uk.ac.manchester.cs.ore.results.ResultStore;
+import uk.ac.manchester.cs.ore.wrapper.TimingSidecar;
 
 /**
  * @author Rafael S. Goncalves <br/>
@@ -15,11 +24,38 @@ import java.util.StringTokenizer;
  * University of Manchester <br/>
  * <p>
  * Handles the (log) output of reasoners, specifically the operation time, the external duration as recorded
- * by the shell script, errors (if applicable), and the operation CPU time if the reasoner outputs this value 
+ * by the shell script, errors (if applicable), and the operation CPU time if the reasoner outputs this value.
+ * Logs of batch satisfiability checks (sat-batch) contain the operation times of each concept, preceded by a
+ * <i>Concept: URI</i> line, and are turned into one row per concept. Where the reasoner also recorded its
+ * timings in a {@link TimingSidecar} (as the {@link uk.ac.manchester.cs.ore.wrapper.SimpleReasonerWrapper} does),
+ * the operation times are taken from there, at full precision, rather than from the log, and the times and 
+ * allocated bytes of each of its phases are stored in the record alongside them; if the reasoner's wall clock time
+ * was also measured, the log is not read at all. Where the reasoner reports its
+ * preprocessing time separately (e.g., because it preprocesses once for several operations), the preprocessing 
+ * time is added to the operation time, as it would have been spent within the operation otherwise, and is also 
+ * stored on its own
+ * <br/><br/>
+ * Besides the operation's csv file, rows are also appended to the operation's {@link ResultStore} (a 
+ * <i>_operation.ores</i> file next to the csv file), as typed records that can be queried without re-parsing 
+ * the csv files. Both are appended to through the {@link ResultSink}, so that handlers running concurrently 
+ * (in several threads or processes) do not corrupt each other's rows. Resources measured outside the reasoner 
+ * (e.g., by the {@link uk.ac.manchester.cs.ore.runner.ReasonerProcessLauncher}) can be handed over to be stored 
+ * alongside the reported times, as can the reason the reasoner terminated, in which case the status is taken from
+ * it rather than inferred (e.g., a timeout from the absence of reported times).
  * </p>
  */
 public class OutputHandler {
-	private double opTime, opCpuTime, externalDuration;
+	private static final Map<String,Column[]> phaseColumns = new HashMap<String,Column[]>();
+	private double opTime, opCpuTime, prepTime, prepCpuTime, externalDuration;
+	
+	static {
+		phaseColumns.put(TimingSidecar.PARSE, new Column[] { Column.PARSE_TIME, Column.PARSE_CPU_TIME, Column.PARSE_ALLOCATED });
+		phaseColumns.put(TimingSidecar.CREATE, new Column[] { Column.CREATE_TIME, Column.CREATE_CPU_TIME, Column.CREATE_ALLOCATED });
+		phaseColumns.put(TimingSidecar.PRECOMPUTE, new Column[] { Column.PRECOMPUTE_TIME, Column.PRECOMPUTE_CPU_TIME, Column.PRECOMPUTE_ALLOCATED });
+		phaseColumns.put(TimingSidecar.EXTRACTION, new Column[] { Column.EXTRACT_TIME, Column.EXTRACT_CPU_TIME, Column.EXTRACT_ALLOCATED });
+		phaseColumns.put(TimingSidecar.PRUNING, new Column[] { Column.PRUNE_TIME, Column.PRUNE_CPU_TIME, Column.PRUNE_ALLOCATED });
+		phaseColumns.put(TimingSidecar.SERIALIZATION, new Column[] { Column.SERIALIZE_TIME, Column.SERIALIZE_CPU_TIME, Column.SERIALIZE_ALLOCATED });
+	}
 	
 	/**
 	 * Constructor
@@ -27,6 +63,8 @@ public class OutputHandler {
 	public OutputHandler() {
 		opTime = 0;
 		opCpuTime = 0;
+		prepTime = Double.NaN;
+		prepCpuTime = Double.NaN;
 		externalDuration = 0;
 	}
 	
@@ -38,30 +76,178 @@ public class OutputHandler {
 	 * @throws IOException
 	 */
 	public String parseFile(File reasonerOutput) throws IOException {
+		return parseFile(reasonerOutput, null, null);
+	}
+	
+	
+	/**
+	 * Parse the reasoner's output and retrieve the reported times, where the operation times are taken from the 
+	 * given timings instead if they record the operation's reasoning phase (and likewise the preprocessing times).
+	 * Where the timings record the preprocessing phase, which the wrapper times separately from the operation, 
+	 * this is added to the operation times, so that these are comparable with those of reasoners that do not. 
+	 * Preprocessing times reported only in the log are recorded as such, but not added to the operation times, 
+	 * whose meaning is then that of the times the reasoner reports
+	 * @param reasonerOutput	Reasoner output file
+	 * @param timings	Timings recorded by the reasoner, or null if none
+	 * @param subject	Subject of the operation's reasoning phase (i.e., the concept URI for satisfiability), 
+	 * or null if none
+	 * @return Reported times by the reasoner and shell
+	 * @throws IOException
+	 */
+	public String parseFile(File reasonerOutput, TimingSidecar timings, String subject) throws IOException {
+		return parseFile(reasonerOutput, timings, subject, Double.NaN);
+	}
+	
+	
+	/**
+	 * Parse the reasoner's output and retrieve the reported times, as above, given the external duration measured 
+	 * by the caller (e.g., the wall clock time of the reasoner's process). Where the timings record both the 
+	 * operation's reasoning phase and the preprocessing phase, there is nothing left to take from the log, which 
+	 * is then not read at all
+	 * @param reasonerOutput	Reasoner output file
+	 * @param timings	Timings recorded by the reasoner, or null if none
+	 * @param subject	Subject of the operation's reasoning phase (i.e., the concept URI for satisfiability), 
+	 * or null if none
+	 * @param duration	External duration (in seconds), or NaN if it should be taken from the log
+	 * @return Reported times by the reasoner and shell
+	 * @throws IOException
+	 */
+	public String parseFile(File reasonerOutput, TimingSidecar timings, String subject, double duration) throws IOException {
+		TimingSidecar.Phase reasoning = (timings != null ? timings.getPhase(TimingSidecar.REASONING, subject) : null);
+		boolean preprocessed = (timings != null && timings.getPhase(TimingSidecar.PREPROCESS, null) != null);
+		if(reasoning != null && preprocessed && !Double.isNaN(duration))
+			externalDuration = duration;
+		else
+			parseLog(reasonerOutput, reasoning == null);
+		if(reasoning != null) {
+			opTime = reasoning.getWallTime()/1000000.0;
+			opCpuTime = reasoning.getCpuTime()/1000000.0;
+		}
+		if(setPreprocessingTimes(timings) && (opTime != 0 || opCpuTime != 0)) {
+			opTime += prepTime;
+			opCpuTime += (Double.isNaN(prepCpuTime) ? 0 : prepCpuTime);
+		}
+		if(!Double.isNaN(prepTime)) {
+			System.out.println("\tPreprocessing time: " + prepTime + " milliseconds");
+			System.out.println("\tPreprocessing CPU time: " + prepCpuTime + " milliseconds");
+		}
+		System.out.println("\tOperation time: " + opTime + " milliseconds");
+		System.out.println("\tOperation CPU time: " + opCpuTime + " milliseconds");
+		System.out.println("\tOperation external duration: " + externalDuration + " seconds");
+		return opTime + "," + opCpuTime + "," + externalDuration + ",";
+	}
+	
+	
+	/**
+	 * Parse the reasoner's output for the reported operation and preprocessing times, and the external duration
+	 * @param reasonerOutput	Reasoner output file
+	 * @param opTimes	true if the operation times should be parsed, false if they are known otherwise
+	 * @throws IOException
+	 */
+	private void parseLog(File reasonerOutput, boolean opTimes) throws IOException {
 		BufferedReader reader = new BufferedReader(new FileReader(reasonerOutput));
 		String line = reader.readLine();
 		while(line != null) {
 			line = line.trim();
-			StringTokenizer st = new StringTokenizer(line, ":");
-			for(int i = 0; i < st.countTokens(); i++) {
-				String token = st.nextToken();
-				if(token.equalsIgnoreCase("operation time") || token.equalsIgnoreCase("classification time")) { 
-					opTime = Double.parseDouble(st.nextToken());
-					System.out.println("\tOperation time: " + opTime + " milliseconds");
-				}
-				else if(token.equalsIgnoreCase("operation cpu time")) {
-					opCpuTime = Double.parseDouble(st.nextToken());
-					System.out.println("\tOperation CPU time: " + opCpuTime + " milliseconds");
+			int sep = line.indexOf(':');
+			if(sep > 0) {
+				String key = line.substring(0, sep).trim(), value = line.substring(sep+1).trim();
+				if(opTimes && (key.equalsIgnoreCase("operation time") || key.equalsIgnoreCase("classification time")))
+					opTime = Double.parseDouble(value);
+				else if(opTimes && key.equalsIgnoreCase("operation cpu time"))
+					opCpuTime = Double.parseDouble(value);
+				else if(key.equalsIgnoreCase("preprocessing time"))
+					prepTime = Double.parseDouble(value);
+				else if(key.equalsIgnoreCase("preprocessing cpu time"))
+					prepCpuTime = Double.parseDouble(value);
+				else if(key.equalsIgnoreCase("duration"))
+					externalDuration = Double.parseDouble(value);
+			}
+			line = reader.readLine();
+		}
+		reader.close();
+	}
+	
+	
+	/**
+	 * Take the preprocessing times from the given timings, if they record the preprocessing phase
+	 * @param timings	Timings recorded by the reasoner, or null if none
+	 * @return true if the timings record the preprocessing phase, false otherwise
+	 */
+	private boolean setPreprocessingTimes(TimingSidecar timings) {
+		TimingSidecar.Phase preprocess = (timings != null ? timings.getPhase(TimingSidecar.PREPROCESS, null) : null);
+		if(preprocess == null) 
+			return false;
+		prepTime = preprocess.getWallTime()/1000000.0;
+		prepCpuTime = preprocess.getCpuTime()/1000000.0;
+		return true;
+	}
+	
+	
+	/**
+	 * Parse the log of a batch satisfiability check and retrieve the reported times per concept 
+	 * @param reasonerOutput	Reasoner output file
+	 * @return Map of concept URIs to their reported times
+	 * @throws IOException
+	 */
+	public Map<String,String> parseBatchFile(File reasonerOutput) throws IOException {
+		return parseBatchFile(reasonerOutput, null);
+	}
+	
+	
+	/**
+	 * Parse the log of a batch satisfiability check and retrieve the reported times per concept, where the times
+	 * of the concepts whose reasoning phase is recorded in the given timings are taken from there instead. A concept
+	 * only has times once its operation time is reported (or its reasoning phase recorded), so that the concept the
+	 * reasoner was checking when it was stopped has none
+	 * @param reasonerOutput	Reasoner output file
+	 * @param timings	Timings recorded by the reasoner, or null if none
+	 * @return Map of concept URIs to their reported times
+	 * @throws IOException
+	 */
+	public Map<String,String> parseBatchFile(File reasonerOutput, TimingSidecar timings) throws IOException {
+		Map<String,String> times = new HashMap<String,String>();
+		BufferedReader reader = new BufferedReader(new FileReader(reasonerOutput));
+		String concept = null;
+		double time = 0, cpuTime = 0;
+		boolean timed = false;
+		String line = reader.readLine();
+		while(line != null) {
+			line = line.trim();
+			int sep = line.indexOf(':');
+			if(sep > 0) {
+				String key = line.substring(0, sep).trim(), value = line.substring(sep+1).trim();
+				if(key.equalsIgnoreCase("concept")) {
+					if(concept != null && timed) times.put(concept, time + "," + cpuTime + ",");
+					concept = value;
+					time = 0; cpuTime = 0;
+					timed = false;
 				}
-				else if(token.equalsIgnoreCase("duration")) {
-					externalDuration = Double.parseDouble(st.nextToken());
-					System.out.println("\tOperation external duration: " + externalDuration + " seconds");
+				else if(key.equalsIgnoreCase("operation time")) {
+					time = Double.parseDouble(value);
+					timed = true;
 				}
+				else if(key.equalsIgnoreCase("operation cpu time"))
+					cpuTime = Double.parseDouble(value);
+				else if(key.equalsIgnoreCase("preprocessing time"))
+					prepTime = Double.parseDouble(value);
+				else if(key.equalsIgnoreCase("preprocessing cpu time"))
+					prepCpuTime = Double.parseDouble(value);
+				else if(key.equalsIgnoreCase("duration"))
+					externalDuration = Double.parseDouble(value);
 			}
 			line = reader.readLine();
 		}
+		if(concept != null && timed) times.put(concept, time + "," + cpuTime + ",");
 		reader.close();
-		return opTime + "," + opCpuTime + "," + externalDuration + ",";
+		setPreprocessingTimes(timings);
+		if(timings != null) {
+			for(TimingSidecar.Phase p : timings.getPhases()) {
+				if(p.getName().equals(TimingSidecar.REASONING) && !p.getSubject().isEmpty())
+					times.put(p.getSubject(), p.getWallTime()/1000000.0 + "," + p.getCpuTime()/1000000.0 + ",");
+			}
+		}
+		return times;
 	}
 	
 	
@@ -116,58 +302,268 @@ public class OutputHandler {
 	
 	
 	/**
-	 * Main
-	 * 
-	 * Parameter list (index positions):
-	 * 0	Reasoner output (log)
-	 * 1	Operation name
-	 * 2	Ontology name
-	 * 3	Error file
-	 * 4	Output directory
-	 * 5	Concept URI
-	 * @throws IOException 
+	 * Get preprocessing time, as reported separately by the reasoner
+	 * @return Preprocessing time (in milliseconds), or NaN if not reported
 	 */
-	public static void main(String[] args) throws IOException {
+	public double getPreprocessingTime() {
+		return prepTime;
+	}
+	
+	
+	/**
+	 * Parse the reasoner log and error file, and append the resulting row to the operation's csv file 
+	 * @param logFile	Reasoner output (log) file path
+	 * @param opName	Operation name
+	 * @param ontFile	Ontology file path
+	 * @param outFile	Reasoner output file path, used to locate the error and timings files
+	 * @param outputDir	Output directory for the csv file
+	 * @param conceptUri	Concept URI, concept list file path for sat-batch, or null if not applicable
+	 * @return Path of the csv file the row(s) were appended to
+	 * @throws IOException
+	 */
+	public static String handle(String logFile, String opName, String ontFile, String outFile, String outputDir, 
+			String conceptUri) throws IOException {
+		return handle(logFile, opName, ontFile, outFile, outputDir, conceptUri, null, Collections.<Column,Double>emptyMap());
+	}
+	
+	
+	/**
+	 * Parse the reasoner log and error file, and append the resulting row to the operation's csv file, and the
+	 * resulting record, along with the given termination reason and measured values, to the operation's results store
+	 * @param logFile	Reasoner output (log) file path
+	 * @param opName	Operation name
+	 * @param ontFile	Ontology file path
+	 * @param outFile	Reasoner output file path, used to locate the error and timings files
+	 * @param outputDir	Output directory for the csv file
+	 * @param conceptUri	Concept URI, concept list file path for sat-batch, or null if not applicable
+	 * @param termination	Reason the reasoner terminated, i.e., ok | timeout | oom | crash | exit, or null if unknown
+	 * @param measured	Map of numeric columns to values measured outside the reasoner, e.g., its resource usage
+	 * @return Path of the csv file the row(s) were appended to
+	 * @throws IOException
+	 */
+	public static String handle(String logFile, String opName, String ontFile, String outFile, String outputDir, 
+			String conceptUri, String termination, Map<Column,Double> measured) throws IOException {
+		if(opName.equalsIgnoreCase("sat-batch"))
+			return handleBatch(logFile, ontFile, outFile, outputDir, conceptUri, termination, measured);
+		
 		String row = "";
 		OutputHandler handler = new OutputHandler();
 		
 		// Ontology filename
-		File ontFile= new File(args[2]);
-		String ontName = ontFile.getName();
+		String ontName = new File(ontFile).getName();
 		row += ontName + ",";
 		
-		// Read in reasoner output (log)
-		File f = new File(args[0]);
-		row += handler.parseFile(f);
-		
-		// Operation name
-		String opName = args[1];
+		// Read in reasoner output (log), and timings if recorded
+		TimingSidecar timings = TimingSidecar.read(TimingSidecar.getFile(outFile, opName, conceptUri));
+		Double wallTime = measured.get(Column.WALL_TIME);
+		row += handler.parseFile(new File(logFile), timings, (opName.equalsIgnoreCase("sat") ? conceptUri : null), 
+				(wallTime != null ? wallTime/1000 : Double.NaN));
 	
 		// Concept uri
-		if(args.length > 5) {
-			String conceptUri = args[5];
+		if(conceptUri != null)
 			row += conceptUri + ",";
-		}
 		
 		// Error file
-		File errorFile = new File(args[3] + "_err");
-		if(errorFile.exists()) {
-			String error = handler.parseErrorFile(errorFile);
-			if(!error.isEmpty())
-				row += error;
-		}
-		else if(handler.getOpTime() == 0 && handler.getOpCpuTime() == 0) 
-			row += "timeout,";
+		String error = "";
+		File errorFile = new File(outFile + "_err");
+		if(errorFile.exists())
+			error = handler.parseErrorFile(errorFile);
+		else if(termination == null && handler.getOpTime() == 0 && handler.getOpCpuTime() == 0) 
+			error = "timeout,";
+		row += getErrorColumn(error, termination);
+		
+		List<String> rows = new ArrayList<String>();
+		rows.add(row);
+		List<ResultRecord> records = new ArrayList<ResultRecord>();
+		records.add(handler.getRecord(ontName, getReasonerName(outFile), opName, conceptUri, handler.getOpTime(), 
+				handler.getOpCpuTime(), error, termination, getPhaseValues(timings, measured)));
+		return serializeRows(rows, records, outputDir, opName);
+	}
+	
+	
+	/**
+	 * Parse the log of a batch satisfiability check and append one row per concept in the given concept list to
+	 * the satisfiability csv file. Concepts without reported times (e.g., because the reasoner was stopped before 
+	 * reaching them) are recorded with the termination reason, if the reasoner did not terminate normally, and 
+	 * otherwise with the error in the error file if there is one, or as a timeout. The external duration, 
+	 * preprocessing times, phase timings (other than the operation times) and measured values recorded in each row 
+	 * are those of the whole batch, and the preprocessing times are not added to the operation times of any concept
+	 * @param logFile	Reasoner output (log) file path
+	 * @param ontFile	Ontology file path
+	 * @param outFile	Reasoner output file path, used to locate the error and timings files
+	 * @param outputDir	Output directory for the csv file
+	 * @param conceptList	Concept list file path
+	 * @param termination	Reason the reasoner terminated, or null if unknown
+	 * @param measured	Map of numeric columns to values measured outside the reasoner
+	 * @return Path of the csv file the rows were appended to
+	 * @throws IOException
+	 */
+	private static String handleBatch(String logFile, String ontFile, String outFile, String outputDir, 
+			String conceptList, String termination, Map<Column,Double> measured) throws IOException {
+		OutputHandler handler = new OutputHandler();
+		String ontName = new File(ontFile).getName();
+		TimingSidecar timings = TimingSidecar.read(TimingSidecar.getFile(outFile, "sat-batch", conceptList));
+		Map<String,String> times = handler.parseBatchFile(new File(logFile), timings);
+		measured = getPhaseValues(timings, measured);
 		
-		File outputDir = new File(args[4]);
-		outputDir.mkdirs();
-		String outFile = outputDir.getAbsolutePath();
-		if(!outFile.endsWith(File.separator)) outFile += File.separator;
-		outFile += "_" + opName + ".csv";
+		String error = "timeout,";
+		File errorFile = new File(outFile + "_err");
+		if(errorFile.exists())
+			error = handler.parseErrorFile(errorFile);
+		
+		List<String> rows = new ArrayList<String>();
+		List<ResultRecord> records = new ArrayList<ResultRecord>();
+		String reasoner = getReasonerName(outFile);
+		BufferedReader br = new BufferedReader(new FileReader(conceptList));
+		String conceptUri;
+		while((conceptUri = br.readLine()) != null) {
+			conceptUri = conceptUri.trim();
+			if(conceptUri.isEmpty()) continue;
+			String row = ontName + ",";
+			if(times.containsKey(conceptUri)) {
+				String[] t = times.get(conceptUri).split(",");
+				row += times.get(conceptUri) + handler.externalDuration + "," + conceptUri + ",";
+				records.add(handler.getRecord(ontName, reasoner, "sat", conceptUri, Double.parseDouble(t[0]), 
+						Double.parseDouble(t[1]), "", null, measured));
+			}
+			else {
+				row += "0.0,0.0," + handler.externalDuration + "," + conceptUri + "," + getErrorColumn(error, termination);
+				records.add(handler.getRecord(ontName, reasoner, "sat", conceptUri, 0, 0, error, termination, measured));
+			}
+			rows.add(row);
+		}
+		br.close();
+		return serializeRows(rows, records, outputDir, "sat");
+	}
+	
+	
+	/**
+	 * Get the results store record of a row
+	 * @param ontName	Ontology file name
+	 * @param reasoner	Reasoner name
+	 * @param opName	Operation name
+	 * @param conceptUri	Concept URI, or null if not applicable
+	 * @param time	Operation time (in milliseconds)
+	 * @param cpuTime	Operation CPU time (in milliseconds)
+	 * @param error	Error column(s) of the row, as returned by <b>parseErrorFile</b>, or the empty string if none
+	 * @param termination	Reason the reasoner terminated, or null if unknown
+	 * @param measured	Map of numeric columns to values measured outside the reasoner
+	 * @return Result record
+	 */
+	private ResultRecord getRecord(String ontName, String reasoner, String opName, String conceptUri, double time, 
+			double cpuTime, String error, String termination, Map<Column,Double> measured) {
+		if(error.endsWith(",")) error = error.substring(0, error.length()-1);
+		String status = (error.isEmpty() ? "ok" : error.equals("timeout") ? "timeout" : "error");
+		if(termination != null && !termination.equals("ok")) {
+			status = termination;
+			if(error.equals("timeout")) error = "";
+		}
+		Map<Column,Double> values = new EnumMap<Column,Double>(Column.class);
+		values.putAll(measured);
+		values.put(Column.OP_TIME, time);
+		values.put(Column.CPU_TIME, cpuTime);
+		values.put(Column.DURATION, externalDuration);
+		values.put(Column.PREPROCESS_TIME, prepTime);
+		values.put(Column.PREPROCESS_CPU_TIME, prepCpuTime);
+		return new ResultRecord(ontName, reasoner, opName, conceptUri, status, (status.equals("timeout") ? "" : error.trim()), 
+				values);
+	}
+	
+	
+	/**
+	 * Get the values of the phase columns for the given timings, i.e., the total wall clock time, CPU time (both in 
+	 * milliseconds) and allocated bytes of each phase not specific to a concept, along with the given values
+	 * @param timings	Timings recorded by the reasoner, or null if none
+	 * @param measured	Map of numeric columns to values measured outside the reasoner
+	 * @return Map of numeric columns to values
+	 */
+	private static Map<Column,Double> getPhaseValues(TimingSidecar timings, Map<Column,Double> measured) {
+		Map<Column,Double> values = new EnumMap<Column,Double>(Column.class);
+		values.putAll(measured);
+		if(timings != null) {
+			for(Map.Entry<String,Column[]> e : phaseColumns.entrySet()) {
+				TimingSidecar.Phase p = timings.getTotal(e.getKey(), null);
+				if(p == null) continue;
+				Column[] cols = e.getValue();
+				values.put(cols[0], p.getWallTime()/1000000.0);
+				values.put(cols[1], p.getCpuTime()/1000000.0);
+				values.put(cols[2], (p.getAllocated() < 0 ? Double.NaN : (double)p.getAllocated()));
+			}
+		}
+		return values;
+	}
+	
+	
+	/**
+	 * Get the error column of a csv row: the termination reason if the reasoner was stopped for exceeding its 
+	 * limits, or otherwise the given error, or the termination reason if there is no error but the reasoner did 
+	 * not terminate normally
+	 * @param error	Error column, as returned by <b>parseErrorFile</b>, or the empty string if none
+	 * @param termination	Reason the reasoner terminated, or null if unknown
+	 * @return Error column
+	 */
+	private static String getErrorColumn(String error, String termination) {
+		if(termination == null || termination.equals("ok"))
+			return error;
+		if(termination.equals("timeout") || termination.equals("oom") || error.isEmpty())
+			return termination + ",";
+		return error;
+	}
+	
+	
+	/**
+	 * Get the reasoner name from a reasoner output file path, assuming the standard folder structure, i.e., 
+	 * <i>reasoners/Reasoner/Output/Ontology/file</i>
+	 * @param outFile	Reasoner output file path
+	 * @return Reasoner name, or the empty string if the path does not follow the standard folder structure
+	 */
+	private static String getReasonerName(String outFile) {
+		File f = new File(outFile).getAbsoluteFile();
+		for(int i = 0; i < 3 && f != null; i++)
+			f = f.getParentFile();
+		return (f != null ? f.getName() : "");
+	}
+	
+	
+	/**
+	 * Append the given rows to the operation's csv file, and the given records to the operation's results store, 
+	 * in the specified output directory
+	 * @param rows	List of rows
+	 * @param records	List of records
+	 * @param outputDir	Output directory
+	 * @param opName	Operation name
+	 * @return Path of the csv file the rows were appended to
+	 * @throws IOException
+	 */
+	private static String serializeRows(List<String> rows, List<ResultRecord> records, String outputDir, String opName) 
+			throws IOException {
+		File dir = new File(outputDir);
+		dir.mkdirs();
+		String csvFile = dir.getAbsolutePath();
+		if(!csvFile.endsWith(File.separator)) csvFile += File.separator;
+		csvFile += "_" + opName + ".csv";
 		
-		BufferedWriter bw = new BufferedWriter(new FileWriter(new File(outFile), true));
-		bw.write(row + "\n");
-		bw.close();
+		ResultSink sink = ResultSink.getInstance();
+		sink.append(new File(csvFile), rows);
+		sink.append(new ResultStore(new File(dir, "_" + opName + ResultStore.EXTENSION)), records);
+		return csvFile;
+	}
+	
+	
+	/**
+	 * Main
+	 * 
+	 * Parameter list (index positions):
+	 * 0	Reasoner output (log)
+	 * 1	Operation name
+	 * 2	Ontology name
+	 * 3	Error file
+	 * 4	Output directory
+	 * 5	Concept URI, or concept list file path for sat-batch
+	 * @throws IOException 
+	 */
+	public static void main(String[] args) throws IOException {
+		String outFile = handle(args[0], args[1], args[2], args[3], args[4], (args.length > 5 ? args[5] : null));
 		System.out.println("\tSaved log at: " + outFile);
 	}
 }
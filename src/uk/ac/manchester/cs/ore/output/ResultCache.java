@@ -0,0 +1,291 @@
+package uk.ac.manchester.cs.ore.output;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.semanticweb.owlapi.model.OWLClass;
+import org.semanticweb.owlapi.model.OWLDataFactory;
+import org.semanticweb.owlapi.model.OWLOntology;
+
+import uk.ac.manchester.cs.diff.hierarchy.SubsumptionSet;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Cache of parsed results ontologies and class hierarchies, so that each results file is parsed at most once per 
+ * comparator run, rather than once for every other file it is compared against. Entries of both kinds share one
+ * memory budget, given (in MB) by the system property <i>ore.cache.mb</i>, or half of the maximum heap size by 
+ * default, and are evicted in least-recently-used order once their estimated footprint exceeds it. The footprint 
+ * of an ontology is estimated from the size of its file, and that of a class hierarchy from its number of 
+ * subsumptions. Evicted ontologies are only dropped from the cache, not removed from their managers, as they may 
+ * still be in use by an ongoing comparison. Files that could not be parsed are cached as well.
+ * <br/><br/>
+ * Each ontology is loaded by its own manager: results files of the same input ontology usually share its 
+ * ontology IRI, which a single manager does not allow, and managers are not safe for concurrent loading.
+ * <br/><br/>
+ * The cache is safe for use by several threads: a file requested concurrently is parsed only once, and
+ * the lazily built indexes of each ontology are built upon loading, so that it can be read concurrently.
+ * </p>
+ */
+public class ResultCache {
+	private static final int FOOTPRINT_FACTOR = 8;
+	private final Loader loader;
+	private final long budget;
+	private final Map<Key,Entry> entries;
+	private final Map<Key,Object> locks;
+	private long size, hits, misses, evictions, timeSaved;
+
+	/**
+	 * Constructor
+	 * @param loader	Ontology loader
+	 */
+	public ResultCache(Loader loader) {
+		this(loader, Long.getLong("ore.cache.mb", Runtime.getRuntime().maxMemory()/(2*1024*1024))*1024*1024);
+	}
+
+
+	/**
+	 * Constructor
+	 * @param loader	Ontology loader
+	 * @param budget	Memory budget (in bytes)
+	 */
+	public ResultCache(Loader loader, long budget) {
+		this.loader = loader;
+		this.budget = budget;
+		entries = new LinkedHashMap<Key,Entry>(16, 0.75f, true);
+		locks = new HashMap<Key,Object>();
+	}
+
+
+	/**
+	 * Get the ontology in the given file, parsing it only if it is not cached
+	 * @param f	File
+	 * @return Ontology, or null if the file could not be parsed
+	 * @throws IOException
+	 */
+	public OWLOntology getOntology(File f) throws IOException {
+		return (OWLOntology)get(new Key(f, false));
+	}
+
+
+	/**
+	 * Get the class hierarchy in the given file, reading it only if it is not cached
+	 * @param f	File
+	 * @return Class hierarchy, as given by the loader
+	 * @throws IOException
+	 */
+	public SubsumptionSet getHierarchy(File f) throws IOException {
+		return (SubsumptionSet)get(new Key(f, true));
+	}
+
+
+	/**
+	 * Get the ontology or class hierarchy of the given key, loading it only if it is not cached
+	 * @param key	Cache key
+	 * @return Ontology or class hierarchy, or null if it could not be loaded
+	 * @throws IOException
+	 */
+	private Object get(Key key) throws IOException {
+		Object lock;
+		synchronized(locks) {
+			lock = locks.get(key);
+			if(lock == null) {
+				lock = new Object();
+				locks.put(key, lock);
+			}
+		}
+		synchronized(lock) {
+			synchronized(this) {
+				Entry e = entries.get(key);
+				if(e != null) {
+					hits++;
+					timeSaved += e.loadTime;
+					return e.value;
+				}
+			}
+			long start = System.nanoTime();
+			Object value;
+			long footprint;
+			if(key.hierarchy) {
+				SubsumptionSet h = loader.loadHierarchy(key.file);
+				value = h;
+				// Subsumptions are stored as longs, in an array at most twice as long as needed
+				footprint = 8L * Math.max(2L * (h != null ? h.size() : 0), 1024);
+			}
+			else {
+				OWLOntology ont = loader.load(key.file);
+				if(ont != null) prepareForConcurrentAccess(ont);
+				value = ont;
+				footprint = key.file.length()*FOOTPRINT_FACTOR;
+			}
+			Entry e = new Entry(value, System.nanoTime()-start, footprint);
+			synchronized(this) {
+				misses++;
+				entries.put(key, e);
+				size += e.footprint;
+				evict(key);
+			}
+			return value;
+		}
+	}
+
+
+	/**
+	 * Evict least recently used entries until the cache is within its memory budget, or only the given entry is left
+	 * @param keep	Key of the entry that should not be evicted
+	 */
+	private void evict(Key keep) {
+		Iterator<Map.Entry<Key,Entry>> it = entries.entrySet().iterator();
+		while(size > budget && it.hasNext()) {
+			Map.Entry<Key,Entry> eldest = it.next();
+			if(!eldest.getKey().equals(keep)) {
+				it.remove();
+				size -= eldest.getValue().footprint;
+				evictions++;
+			}
+		}
+	}
+
+
+	/**
+	 * Remove all entries from the cache, and their ontologies from their managers
+	 */
+	public synchronized void clear() {
+		for(Entry e : entries.values()) {
+			if(e.value instanceof OWLOntology) {
+				OWLOntology ont = (OWLOntology)e.value;
+				ont.getOWLOntologyManager().removeOntology(ont);
+			}
+		}
+		entries.clear();
+		size = 0;
+	}
+
+
+	/**
+	 * Get the number of cache look-ups
+	 * @return Number of cache hits and misses
+	 */
+	public synchronized long getLookups() {
+		return hits + misses;
+	}
+
+
+	/**
+	 * Get a summary of the cache usage
+	 * @return Cache statistics
+	 */
+	public synchronized String getStatistics() {
+		return "Result cache: " + hits + " hit(s), " + misses + " miss(es), " + evictions + " eviction(s), " +
+				(timeSaved/1000000) + " ms of parsing saved";
+	}
+
+
+	/**
+	 * The OWL API builds most of the axiom indexes of an ontology lazily, upon first access, and that
+	 * initialisation is not thread-safe. Force all indexes to be built up front, so that the given ontology
+	 * can be read concurrently by the diffs (and their reasoners) of several comparisons
+	 * @param ont	Ontology
+	 */
+	private void prepareForConcurrentAccess(OWLOntology ont) {
+		OWLDataFactory df = ont.getOWLOntologyManager().getOWLDataFactory();
+		OWLClass c = df.getOWLThing();
+		ont.getAxioms(c);
+		ont.getSubClassAxiomsForSubClass(c);
+		ont.getSubClassAxiomsForSuperClass(c);
+		ont.getEquivalentClassesAxioms(c);
+		ont.getDisjointClassesAxioms(c);
+		ont.getDisjointUnionAxioms(c);
+		ont.getHasKeyAxioms(c);
+		ont.getClassAssertionAxioms(c);
+		ont.getAnnotationAssertionAxioms(c.getIRI());
+		ont.getAxioms(df.getOWLTopObjectProperty());
+		ont.getAxioms(df.getOWLTopDataProperty());
+		ont.getAxioms(df.getOWLNamedIndividual(c.getIRI()));
+	}
+
+
+	/**
+	 * Cache key: a file, and whether its class hierarchy or its ontology is cached
+	 */
+	private static class Key {
+		private final File file;
+		private final boolean hierarchy;
+
+		/**
+		 * Constructor
+		 * @param file	File
+		 * @param hierarchy	true for the class hierarchy in the file, false for its ontology
+		 */
+		public Key(File file, boolean hierarchy) {
+			this.file = file;
+			this.hierarchy = hierarchy;
+		}
+
+
+		@Override
+		public boolean equals(Object o) {
+			if(!(o instanceof Key)) return false;
+			Key k = (Key)o;
+			return k.hierarchy == hierarchy && k.file.equals(file);
+		}
+
+
+		@Override
+		public int hashCode() {
+			return 31*file.hashCode() + (hierarchy ? 1 : 0);
+		}
+	}
+
+
+	/**
+	 * Cache entry
+	 */
+	private static class Entry {
+		private Object value;
+		private long loadTime, footprint;
+
+		/**
+		 * Constructor
+		 * @param value	Ontology or class hierarchy, or null if unparseable
+		 * @param loadTime	Load time (in nanoseconds)
+		 * @param footprint	Estimated memory footprint (in bytes)
+		 */
+		public Entry(Object value, long loadTime, long footprint) {
+			this.value = value;
+			this.loadTime = loadTime;
+			this.footprint = footprint;
+		}
+	}
+
+
+	/**
+	 * Loader of results ontologies
+	 */
+	public interface Loader {
+
+		/**
+		 * Load the ontology in the given file
+		 * @param f	File
+		 * @return Ontology, or null if the file could not be parsed
+		 * @throws IOException
+		 */
+		public OWLOntology load(File f) throws IOException;
+
+
+		/**
+		 * Load the class hierarchy in the given file
+		 * @param f	File
+		 * @return Class hierarchy
+		 * @throws IOException
+		 */
+		public SubsumptionSet loadHierarchy(File f) throws IOException;
+	}
+}
@@ -2,33 +2,58 @@ package uk.ac.manchester.cs.ore.output;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.io.StreamDocumentSource;
+import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLOntology;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 
+import uk.ac.manchester.cs.diff.axiom.CancellationToken;
+import uk.ac.manchester.cs.diff.axiom.HierarchyDiff;
 import uk.ac.manchester.cs.diff.axiom.LogicalDiff;
 import uk.ac.manchester.cs.diff.axiom.StructuralDiff;
+import uk.ac.manchester.cs.diff.axiom.SubsumptionDiff;
 import uk.ac.manchester.cs.diff.axiom.changeset.ChangeSet;
 import uk.ac.manchester.cs.diff.axiom.changeset.LogicalChangeSet;
 import uk.ac.manchester.cs.diff.axiom.changeset.StructuralChangeSet;
+import uk.ac.manchester.cs.diff.hierarchy.ClassDictionary;
+import uk.ac.manchester.cs.diff.hierarchy.HierarchyReader;
+import uk.ac.manchester.cs.diff.hierarchy.SubsumptionSet;
+import uk.ac.manchester.cs.diff.output.ReportVariant;
 import uk.ac.manchester.cs.diff.output.XMLReport;
+import uk.ac.manchester.cs.ore.results.ResultRecord;
+import uk.ac.manchester.cs.ore.results.ResultSink;
+import uk.ac.manchester.cs.ore.results.ResultStore;
 
 /**
  * @author Rafael S. Goncalves <br/>
@@ -42,6 +67,24 @@ import uk.ac.manchester.cs.diff.output.XMLReport;
  * <br/><br/>
  * The relevant diff code is included in the project; it is an alteration of the code for the <b>ecco</b> diff to
  * account for the kinds of axioms ignored (in particular note the ORE-specific method <b>pruneChanges</b>).
+ * <br/><br/>
+ * The comparisons of one results file against all remaining (unclustered) ones are independent of each other,
+ * and are carried out concurrently by a bounded pool of threads, whose size is given by the system property
+ * <i>ore.threads</i> (by default, the number of available processors). The output of each comparison is buffered
+ * and replayed in file order, so that the log and results files are the same as those of a sequential run.
+ * Each results ontology is parsed only once per run, and kept in a {@link ResultCache}. Classification results
+ * files with the same {@link ResultFingerprint} are clustered together without being parsed or diffed. Those that
+ * are plain class hierarchies are read by a {@link HierarchyReader} and compared by a {@link SubsumptionDiff} and, 
+ * if these differ, by a {@link HierarchyDiff}, neither of which needs the results to be parsed into ontologies
+ * nor a reasoner.
+ * <br/><br/>
+ * Each diff is given the time budget (in milliseconds) given by the system property <i>ore.diff.timeout</i>, 
+ * if set, which is the deadline of its {@link CancellationToken}: the structural diff and both (concurrent) sides
+ * of the logical diff that follows it share this one budget, rather than each having a limit of its own. Each 
+ * side of a logical diff uses up to <i>ore.diff.threads</i> reasoner instances (by default, 1), so that up to 
+ * <i>ore.threads</i> &times; 2 &times; <i>ore.diff.threads</i> reasoners may be loaded at once. A diff that runs out of time reports the (pruned) changes it left undecided, and the results files of a
+ * cluster whose representative's comparison with that of the majority cluster was not decided in time, rather 
+ * than found to differ, are given the status <i>diff-timeout</i>.
  * </p>
  */
 public class ResultComparator {
@@ -50,6 +93,15 @@ public class ResultComparator {
 	private BufferedWriter log;
 	private Map<String,String> map;
 	private String ontName, opName, outputFolder, conceptList;
+	private ExecutorService executor;
+	private ThreadLocal<Transcript> transcript;
+	private ResultCache cache;
+	private Map<File,String> fingerprints;
+	private ClassDictionary dictionary;
+	private Set<String> timedOut;
+	private Map<Set<File>,File> representatives;
+	private long diffTimeout;
+	private int fingerprintMatches;
 	
 	/**
 	 * Constructor
@@ -63,11 +115,32 @@ public class ResultComparator {
 		this.files = files;
 		this.conceptList = conceptList;
 		this.opName = opName;
-		this.outputFolder = outputFolder;
+		this.outputFolder = (outputFolder.endsWith(File.separator) ? outputFolder : outputFolder + File.separator);
 		this.ontName = ontName;
-		map = new HashMap<String,String>();
+		map = new ConcurrentHashMap<String,String>();
 		reasonerList = getReasonerList();
 		log = initWriter(outputFolder, "log.txt", true);
+		transcript = new ThreadLocal<Transcript>();
+		timedOut = Collections.synchronizedSet(new HashSet<String>());
+		representatives = new IdentityHashMap<Set<File>,File>();
+		diffTimeout = Long.getLong("ore.diff.timeout", 0);
+		dictionary = new ClassDictionary();
+		cache = new ResultCache(new ResultCache.Loader() {
+			public OWLOntology load(File f) throws IOException {
+				return parseOntology(f);
+			}
+			public SubsumptionSet loadHierarchy(File f) throws IOException {
+				return readHierarchy(f);
+			}
+		});
+		executor = Executors.newFixedThreadPool(Math.max(1, Integer.getInteger("ore.threads", 
+				Runtime.getRuntime().availableProcessors())), new ThreadFactory() {
+			public Thread newThread(Runnable r) {
+				Thread t = new Thread(r, "result-comparison");
+				t.setDaemon(true);
+				return t;
+			}
+		});
 	}
 	
 	
@@ -97,7 +170,13 @@ public class ResultComparator {
 		}
 		else  
 			allEquiv = areResultsEquivalent("");
+		if(fingerprintMatches > 0)
+			log.write("\nIdentical fingerprints: " + fingerprintMatches + " diff(s) skipped\n");
+		if(cache.getLookups() > 0)
+			log.write("\n" + cache.getStatistics() + "\n");
+		cache.clear();
 		log.close();
+		executor.shutdown();
 		return allEquiv;
 	}
 	
@@ -113,39 +192,57 @@ public class ResultComparator {
 		String equivalent = "   Equivalent", sep = "----------------------------------------------------";
 		List<Set<File>> clusters = new ArrayList<Set<File>>();
 		Set<File> clustered = new HashSet<File>();
+		timedOut.clear();
+		representatives.clear();
 		printIntro(cName, sep);
 		if(!files.isEmpty()) {
 			System.out.print("\nComparing results files");
 			if(!cName.equals("")) System.out.print(" for concept " + cName);
 			System.out.println("...\n");
+			if(opName.equalsIgnoreCase("classification") && fingerprints == null)
+				computeFingerprints();
 			LinkedList<File> list = new LinkedList<File>(files);
 			while(!list.isEmpty()) {
 				File f1 = list.pop(); clustered.add(f1);
-				Object o1 = loadFile(f1, cName);
+				String fp1 = getFingerprint(f1);
+				List<File> others = new ArrayList<File>();
+				boolean diffNeeded = false;
+				for(File f2 : files) {
+					if(f1 != f2 && !clustered.contains(f2)) {
+						others.add(f2);
+						if(fp1 == null || !fp1.equals(getFingerprint(f2)))
+							diffNeeded = true;
+					}
+				}
+				// If all other files have the same fingerprint then f1 need not be parsed
+				Object o1 = (diffNeeded || fp1 == null ? loadFile(f1, cName) : fp1);
 				if(o1 != null) {
 					Set<File> f1Cluster = new HashSet<File>(Collections.singleton(f1));
-					for(File f2 : files) {
-						if(f1 != f2 && !clustered.contains(f2)) {
-							Object o2 = loadFile(f2, cName);
-							if(o2 != null) {
-								printComparisonStatement(sep, f1, f2);
-								if(equals(o1, o2, f1, f2, cName)) {
-									System.out.println(equivalent); log.write(equivalent);
-									f1Cluster.add(f2);
-									list.remove(f2);
-									clustered.add(f2);
-								}
-								else
-									allEquiv = false;
-								System.out.println(sep); log.write("\n" + sep);
-								cleanUp(o2);
-							}
-							else
-								map.put(getReasonerName(f2),"nofile");
+					List<PairComparison> comparisons = new ArrayList<PairComparison>();
+					List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+					for(File f2 : others) {
+						boolean identical = (fp1 != null && fp1.equals(getFingerprint(f2)));
+						if(identical) fingerprintMatches++;
+						PairComparison c = new PairComparison(o1, f1, f2, cName, identical, equivalent, sep);
+						comparisons.add(c);
+						results.add(executor.submit(c));
+					}
+					for(int i = 0; i < comparisons.size(); i++) {
+						File f2 = comparisons.get(i).f2;
+						Boolean equiv = getResult(results.get(i));
+						comparisons.get(i).output.replay();
+						if(equiv == null)
+							map.put(getReasonerName(f2),"nofile");
+						else if(equiv) {
+							f1Cluster.add(f2);
+							list.remove(f2);
+							clustered.add(f2);
 						}
+						else
+							allEquiv = false;
 					}
 					clusters.add(f1Cluster);
-					cleanUp(o1);
+					representatives.put(f1Cluster, f1);
 				}
 				else
 					map.put(getReasonerName(f1),"nofile");
@@ -189,10 +286,12 @@ public class ResultComparator {
 		if(!(f.length() > 0))
 			map.put(getReasonerName(f), "empty");
 		else if(opName.equalsIgnoreCase("classification")) {
-			result = loadOntology(f);
+			result = loadHierarchy(f);
+			if(result == null)
+				result = loadOntology(f);
 			if(result == null)
 				map.put(getReasonerName(f), "unparseable");
-			else if(((OWLOntology)result).getLogicalAxiomCount() == 0) {
+			else if(result instanceof OWLOntology && ((OWLOntology)result).getLogicalAxiomCount() == 0) {
 				map.put(getReasonerName(f), "empty");
 				result = null;
 			}
@@ -238,15 +337,28 @@ public class ResultComparator {
 	 */
 	public boolean equivalentEntailmentSets(Object o1, Object o2, File f1, File f2) throws IOException {
 		boolean equiv = true;
-		ChangeSet cs = getDiff((OWLOntology)o1, (OWLOntology)o2, f1, f2);
+		ChangeSet cs;
+		if(o1 instanceof SubsumptionSet && o2 instanceof SubsumptionSet)
+			cs = getDiff((SubsumptionSet)o1, (SubsumptionSet)o2, f1, f2);
+		else {
+			OWLOntology ont1 = (o1 instanceof OWLOntology ? (OWLOntology)o1 : loadOntology(f1));
+			OWLOntology ont2 = (o2 instanceof OWLOntology ? (OWLOntology)o2 : loadOntology(f2));
+			if(ont1 == null || ont2 == null)
+				return false;
+			cs = getDiff(ont1, ont2, f1, f2);
+		}
 		if(!cs.isEmpty()) {
 			Set<OWLAxiom> adds = getAdditions(cs), rems = getRemovals(cs);
-			if(rems.isEmpty() && adds.isEmpty())
+			if(rems.isEmpty() && adds.isEmpty() && cs.isComplete())
 				equiv = true;
 			else {
 				equiv = false;
 				// TODO: Verify justifications for the axioms in the diff against non-entailing reasoner...?
 				logChanges(f1, f2, adds, rems);
+				if(!cs.isComplete())
+					logUndecided((LogicalChangeSet)cs);
+				if(rems.isEmpty() && adds.isEmpty())
+					timedOut.add(getPairKey(f1, f2));
 			}
 		}
 		else equiv = true;
@@ -331,9 +443,9 @@ public class ResultComparator {
 		if(!s1.equalsIgnoreCase(s2)) {
 			equals = false;
 			if(!conceptName.equals(""))
-				System.out.println("   Concept: " + conceptName);
+				println("   Concept: " + conceptName);
 			String outSt = "     " + getReasonerName(f1) + " reports " + s1 + " while " + getReasonerName(f2) + " reports " + s2;
-			System.out.println(outSt); log.write(outSt);
+			println(outSt); write(outSt);
 		}
 		return equals;
 	}
@@ -350,17 +462,30 @@ public class ResultComparator {
 	private void logChanges(File f1, File f2, Set<OWLAxiom> rems, Set<OWLAxiom> adds) throws IOException {
 		if(!rems.isEmpty()) {
 			String s = "  " + getReasonerName(f1) + " outputs " + rems.size() + " extra entailment(s)";
-			System.out.println(s);
-			log.write("\n" + s + "\n");
+			println(s);
+			write("\n" + s + "\n");
 		}
 		if(!adds.isEmpty()) {
 			String s = "  " + getReasonerName(f2) + " outputs " + adds.size() + " extra entailment(s)";
-			System.out.println("\n" + s);
-			log.write("\n" + s + "\n");
+			println("\n" + s);
+			write("\n" + s + "\n");
 		}
 	}
 	
 	
+	/**
+	 * Log the number of changes left undecided by a diff that ran out of time
+	 * @param cs	Change set
+	 * @throws IOException
+	 */
+	private void logUndecided(LogicalChangeSet cs) throws IOException {
+		int undecided = cs.getUndecidedAdditionAxioms().size() + cs.getUndecidedRemovalAxioms().size();
+		String s = "  Diff timed out: " + undecided + " change(s) left undecided";
+		println(s);
+		write("\n" + s + "\n");
+	}
+	
+	
 	/**
 	 * Get the set of added axioms from the given change set
 	 * @param cs	Change set
@@ -392,7 +517,8 @@ public class ResultComparator {
 	
 	
 	/**
-	 * Produce output results file and cluster info file
+	 * Produce output results file and cluster info file, and append the verdict of each reasoner to the 
+	 * results store (<i>results.ores</i>) in the output folder
 	 * @param clusters	List of file clusters
 	 * @throws IOException
 	 */
@@ -404,6 +530,11 @@ public class ResultComparator {
 		
 		serializeClusterInfo(clusters, cName);
 		serialize(generateCSV(cName), outputFolder, "results.csv", true);
+		
+		List<ResultRecord> records = new ArrayList<ResultRecord>();
+		for(String r : reasonerList)
+			records.add(new ResultRecord(ontName, r, opName, cName, map.get(r), null, Double.NaN, Double.NaN, Double.NaN));
+		ResultSink.getInstance().append(new ResultStore(new File(outputFolder, "results" + ResultStore.EXTENSION)), records);
 	}
 	
 	
@@ -441,6 +572,12 @@ public class ResultComparator {
 		}
 		updateMap(correct, "true");
 		updateMap(incorrect, "false");
+		File majority = representatives.get(correct);
+		for(int i = 0; i<clusters.size(); i++) {
+			File rep = representatives.get(clusters.get(i));
+			if(i!=index && majority != null && rep != null && timedOut.contains(getPairKey(rep, majority)))
+				updateMap(clusters.get(i), "diff-timeout");
+		}
 		if(!incorrect.isEmpty()) {
 			System.out.println("\nSummary:");
 			log.write("\nSummary:");
@@ -452,6 +589,18 @@ public class ResultComparator {
 	}
 	
 	
+	/**
+	 * Get the key of the comparison between two files, regardless of which was compared against which
+	 * @param f1	File 1
+	 * @param f2	File 2
+	 * @return Comparison key
+	 */
+	private String getPairKey(File f1, File f2) {
+		String p1 = f1.getPath(), p2 = f2.getPath();
+		return (p1.compareTo(p2) <= 0 ? p1 + "\n" + p2 : p2 + "\n" + p1);
+	}
+	
+	
 	/**
 	 * Update results map
 	 * @param files	Set of files
@@ -501,9 +650,32 @@ public class ResultComparator {
 	}
 	
 	
+	/**
+	 * Verify whether two class hierarchies are equivalent, first w.r.t. subsumption diff and, if they are not,
+	 * w.r.t. hierarchy diff, so that a hierarchy given in full and one given as a transitive reduction are
+	 * found equivalent without a reasoner
+	 * @param h1	Class hierarchy 1
+	 * @param h2	Class hierarchy 2
+	 * @param f1	File 1
+	 * @param f2	File 2
+	 * @return Change set between the two given class hierarchies
+	 */
+	public ChangeSet getDiff(SubsumptionSet h1, SubsumptionSet h2, File f1, File f2) {
+		SubsumptionDiff sdiff = new SubsumptionDiff(h1, h2, dictionary, false);
+		if(sdiff.isEquivalent())
+			return sdiff.getDiff();
+		HierarchyDiff hdiff = new HierarchyDiff(h1, h2, dictionary, false);
+		ChangeSet changeSet = hdiff.getDiff(CancellationToken.withTimeout(diffTimeout));
+		if(!changeSet.isEmpty())
+			serializeDiff(hdiff.getXMLReport(), f1, f2);
+		return changeSet;
+	}
+	
+	
 	/**
 	 * Verify whether two ontology files are equivalent, first w.r.t. structural diff and,
-	 * subsequently, because of the equivalent vs dual subsumptions issue, logical diff
+	 * subsequently, because of the equivalent vs dual subsumptions issue, logical diff. If the logical diff 
+	 * runs out of time, the changes it did not decide are returned as undecided
 	 * @param ont1	Ontology 1
 	 * @param ont2	Ontology 2
 	 * @return Change set between the two given ontologies
@@ -511,15 +683,16 @@ public class ResultComparator {
 	public ChangeSet getDiff(OWLOntology ont1, OWLOntology ont2, File f1, File f2) {
 		ChangeSet changeSet = null;
 		XMLReport report = null;
+		CancellationToken token = CancellationToken.withTimeout(diffTimeout);
 		
 		StructuralDiff sdiff = new StructuralDiff(ont1, ont2, false);
-		changeSet = sdiff.getDiff();
+		changeSet = sdiff.getDiff(token);
 		report = sdiff.getXMLReport();
 		
 		boolean structEquiv = sdiff.isEquivalent();
 		if(!structEquiv) {
 			LogicalDiff ldiff = new LogicalDiff(ont1, ont2, false);
-			changeSet = ldiff.getDiff();
+			changeSet = ldiff.getDiff(token);
 			report = ldiff.getXMLReport();
 		}
 		if(!changeSet.isEmpty())
@@ -529,18 +702,16 @@ public class ResultComparator {
 	
 	
 	/**
-	 * Serialize diff xml report
+	 * Serialize diff xml report, streaming it straight to its file rather than building it in memory first
 	 * @param report	XMLReport object
 	 * @param f1	File 1
 	 * @param f2	File 2
 	 */
 	public void serializeDiff(XMLReport report, File f1, File f2) {
 		try {
-			String rep = report.getReportAsString(report.getXMLDocumentReport());
-			if(!outputFolder.endsWith(File.separator)) outputFolder+=File.separator;
-			String filename = getReasonerName(f1) + "_vs_" + getReasonerName(f2) + ".xml";
-			String folder = outputFolder + "diff_reports" + File.separator + ontName;
-			serialize(rep, folder, filename, false);
+			String name = getReasonerName(f1) + "_vs_" + getReasonerName(f2);
+			File folder = new File(outputFolder + "diff_reports" + File.separator + ontName);
+			report.writeReports(folder, name, EnumSet.of(ReportVariant.ENTITY_NAMES));
 		} catch (Exception e) {
 			System.err.println("! Unable to serialize diff report\n");
 		}
@@ -548,17 +719,71 @@ public class ResultComparator {
 	
 	
 	/**
-	 * Load ontology file
+	 * Load the class hierarchy in the given file, reading it only if it is not cached
+	 * @param f	File
+	 * @return Class hierarchy, or null if the file is not a (non-empty) class hierarchy in functional syntax
+	 */
+	private SubsumptionSet loadHierarchy(File f) {
+		SubsumptionSet h;
+		try {
+			h = cache.getHierarchy(f);
+		} catch (IOException e) {
+			h = null;
+		}
+		return (h != null && h.size() > 0 ? h : null);
+	}
+	
+	
+	/**
+	 * Read the class hierarchy in the given file
+	 * @param f	File
+	 * @return Class hierarchy, which is empty if the file is not a class hierarchy in functional syntax
+	 */
+	private SubsumptionSet readHierarchy(File f) {
+		SubsumptionSet h;
+		try {
+			h = new HierarchyReader(dictionary).read(f);
+		} catch (IOException e) {
+			h = null;
+		}
+		return (h != null ? h : new SubsumptionSet());	// Not a class hierarchy
+	}
+	
+	
+	/**
+	 * Load ontology file, parsing it only if it has not been parsed before
 	 * @param f	File
 	 * @return OWLOntology
 	 * @throws IOException 
 	 */
 	private OWLOntology loadOntology(File f) throws IOException {
+		return cache.getOntology(f);
+	}
+	
+	
+	/**
+	 * Parse ontology file. Functional syntax files that are missing the Ontology(..) statement are wrapped
+	 * in one while being read
+	 * @param f	File
+	 * @return OWLOntology
+	 * @throws IOException 
+	 */
+	private OWLOntology parseOntology(File f) throws IOException {
 		OWLOntologyManager man = OWLManager.createOWLOntologyManager();
 		OWLOntology ont = null;
-		if(getReasonerName(f).equals("elephant")) f = new File(fixFile(f));
 		try {
-			ont = man.loadOntologyFromOntologyDocument(f);
+			if(HierarchyReader.isHeaderless(f)) {
+				InputStream in = new SequenceInputStream(new SequenceInputStream(
+						new ByteArrayInputStream("Ontology(\n".getBytes("UTF-8")), new FileInputStream(f)),
+						new ByteArrayInputStream("\n)".getBytes("UTF-8")));
+				try {
+					ont = man.loadOntologyFromOntologyDocument(new StreamDocumentSource(in, IRI.create(f)));
+				} finally {
+					in.close();
+				}
+			}
+			else
+				ont = man.loadOntologyFromOntologyDocument(f);
 		} catch (Exception e) {
 			System.err.println("! Unable to parse result file of: " + getReasonerName(f) + " (" + f.getAbsolutePath() + ")\n");
 		}
@@ -566,34 +791,6 @@ public class ResultComparator {
 	}
 	
 	
-	
-	/**
-	 * Fix an ontology file that is missing (in functional syntax) the Ontology(..) statement
-	 * @param f	File to fix
-	 * @throws IOException
-	 */
-	private String fixFile(File f) throws IOException {
-		// Prepare fixed file's output
-		String folder = f.getParentFile().getAbsolutePath();
-		if(!folder.endsWith(File.separator)) folder += File.separator;
-		String filename = f.getName() + "_fixed.owl";
-		BufferedWriter writer = initWriter(folder, filename, false);
-		writer.write("Ontology(\n");
-		
-		// Read in original file
-		BufferedReader br = new BufferedReader(new FileReader(f));
-		String line;
-		while((line = br.readLine()) != null)
-			writer.write(line + "\n");
-		br.close();
-		
-		// Finalize fixed file
-		writer.write(")");
-		writer.close();
-		return folder+filename;
-	}
-	
-	
 	/**
 	 * List the given set of files
 	 * @param desc	Description, i.e., equivalent or non-equivalent
@@ -631,7 +828,87 @@ public class ResultComparator {
 	 */
 	private void printComparisonStatement(String sep, File f1, File f2) throws IOException {
 		String st = getComparisonStatement(f1, f2);
-		System.out.println(st); log.write("\n" + st + "\n");
+		println(st); write("\n" + st + "\n");
+	}
+	
+	
+	/**
+	 * Print a line to standard output, or to the transcript of the comparison being carried out by this thread
+	 * @param s	String to print
+	 */
+	private void println(String s) {
+		Transcript t = transcript.get();
+		if(t != null)
+			t.console.append(s).append("\n");
+		else
+			System.out.println(s);
+	}
+	
+	
+	/**
+	 * Write a string to the log file, or to the transcript of the comparison being carried out by this thread
+	 * @param s	String to write
+	 * @throws IOException
+	 */
+	private void write(String s) throws IOException {
+		Transcript t = transcript.get();
+		if(t != null)
+			t.log.append(s);
+		else
+			log.write(s);
+	}
+	
+	
+	/**
+	 * Compute the fingerprints of all (classification) results files, concurrently
+	 * @throws IOException
+	 */
+	private void computeFingerprints() throws IOException {
+		List<Future<String>> results = new ArrayList<Future<String>>();
+		for(final File f : files) {
+			results.add(executor.submit(new Callable<String>() {
+				public String call() {
+					return ResultFingerprint.getFingerprint(f);
+				}
+			}));
+		}
+		fingerprints = new HashMap<File,String>();
+		for(int i = 0; i < files.size(); i++) {
+			String fp = getResult(results.get(i));
+			if(fp != null) fingerprints.put(files.get(i), fp);
+		}
+	}
+	
+	
+	/**
+	 * Get the fingerprint of the given results file
+	 * @param f	File
+	 * @return Fingerprint, or null if the file has none or fingerprints are not applicable to the operation
+	 */
+	private String getFingerprint(File f) {
+		return (fingerprints != null ? fingerprints.get(f) : null);
+	}
+	
+	
+	/**
+	 * Wait for the result of a concurrent task
+	 * @param result	Future result
+	 * @return Task result
+	 * @throws IOException
+	 */
+	private <T> T getResult(Future<T> result) throws IOException {
+		try {
+			return result.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while comparing results files", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if(cause instanceof IOException) throw (IOException)cause;
+			if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+			if(cause instanceof Error) throw (Error)cause;
+			throw new IOException(cause);
+		}
 	}
 	
 	
@@ -647,14 +924,21 @@ public class ResultComparator {
 	
 	
 	/**
-	 * Append a given string to the specified output file
+	 * Append a given string to the specified output file, or overwrite the file with it. Appends go through the 
+	 * {@link ResultSink}, as results files may be shared by comparators running concurrently
 	 * @param out	String to be flushed
 	 */
 	public void serialize(String out, String folder, String filename, boolean append) {
-		BufferedWriter br = initWriter(folder, filename, append);
 		try {
-			br.write(out + "\n");
-			br.close();
+			if(append) {
+				if(!folder.endsWith(File.separator)) folder += File.separator;
+				ResultSink.getInstance().append(new File(folder + filename), Collections.singletonList(out));
+			}
+			else {
+				BufferedWriter br = initWriter(folder, filename, append);
+				br.write(out + "\n");
+				br.close();
+			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -723,6 +1007,80 @@ public class ResultComparator {
 	}
 	
 	
+	/**
+	 * Comparison of a results file against another, which buffers its output in a transcript
+	 */
+	private class PairComparison implements Callable<Boolean> {
+		private Object o1;
+		private File f1, f2;
+		private String cName, equivalent, sep;
+		private boolean identical;
+		private Transcript output;
+		
+		/**
+		 * Constructor
+		 * @param o1	Object representing file 1
+		 * @param f1	File 1
+		 * @param f2	File 2
+		 * @param cName	Concept name of SAT test if applicable, otherwise ignored
+		 * @param identical	true if both files have the same fingerprint, false otherwise
+		 * @param equivalent	Equivalence statement
+		 * @param sep	Separator string
+		 */
+		public PairComparison(Object o1, File f1, File f2, String cName, boolean identical, String equivalent, String sep) {
+			this.o1 = o1;
+			this.f1 = f1;
+			this.f2 = f2;
+			this.cName = cName;
+			this.identical = identical;
+			this.equivalent = equivalent;
+			this.sep = sep;
+			output = new Transcript();
+		}
+		
+		
+		/**
+		 * Load file 2 and compare it against file 1, unless both files have the same fingerprint
+		 * @return true if files are equivalent, false if not, null if file 2 could not be loaded
+		 * @throws IOException
+		 */
+		public Boolean call() throws IOException {
+			transcript.set(output);
+			try {
+				Object o2 = (identical ? null : loadFile(f2, cName));
+				if(o2 == null && !identical)
+					return null;
+				printComparisonStatement(sep, f1, f2);
+				boolean equiv = (identical || ResultComparator.this.equals(o1, o2, f1, f2, cName));
+				if(equiv) {
+					println(equivalent); write(equivalent);
+				}
+				println(sep); write("\n" + sep);
+				return equiv;
+			} finally {
+				transcript.remove();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Buffered standard output and log output of a comparison
+	 */
+	private class Transcript {
+		private StringBuilder console = new StringBuilder(), log = new StringBuilder();
+		
+		/**
+		 * Flush the buffered output to standard output and to the log file
+		 * @throws IOException
+		 */
+		public void replay() throws IOException {
+			System.out.print(console);
+			ResultComparator.this.log.write(log.toString());
+		}
+	}
+	
+	
 	/**
 	 * Main
 	 * 
@@ -0,0 +1,175 @@
+package uk.ac.manchester.cs.ore.output;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import uk.ac.manchester.cs.diff.hierarchy.ClassDictionary;
+import uk.ac.manchester.cs.diff.hierarchy.HierarchyReader;
+import uk.ac.manchester.cs.diff.hierarchy.SubsumptionSet;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Canonical, order-independent 128-bit fingerprint of the subsumptions between named classes in a classification
+ * results file (in functional syntax), computed while streaming through the file with a {@link HierarchyReader}.
+ * The subsumptions are normalised as follows: equivalences are split into subsumptions both ways, subsumptions
+ * of <i>owl:Thing</i> and by <i>owl:Nothing</i> are dropped, as are all non-logical axioms and the role and
+ * assertion axioms ignored by <b>pruneChanges</b>. If two files have the same fingerprint then the comparator would find them equivalent;
+ * files that contain anything else (e.g., complex class expressions or annotated axioms) have no fingerprint.
+ * <br/><br/>
+ * Fingerprints are cached in a <i>.fingerprint</i> file next to the results file, which is reused for as long as
+ * the size and modification time of the results file do not change.
+ * </p>
+ */
+public class ResultFingerprint {
+	public static final String EXTENSION = ".fingerprint";
+	private static final String UNSUPPORTED = "unsupported";
+
+	private ResultFingerprint() {}
+
+
+	/**
+	 * Get the fingerprint of the given results file, from its fingerprint file if that is up to date
+	 * @param f	Results file
+	 * @return Fingerprint as a 32 digit hexadecimal string, or null if the file has no fingerprint
+	 */
+	public static String getFingerprint(File f) {
+		File cached = new File(f.getPath() + EXTENSION);
+		String stamp = f.length() + " " + f.lastModified();
+		if(cached.exists()) {
+			try {
+				BufferedReader br = new BufferedReader(new FileReader(cached));
+				String line = br.readLine();
+				br.close();
+				if(line != null && line.startsWith(stamp + " ")) {
+					String fp = line.substring(stamp.length()+1);
+					return (fp.equals(UNSUPPORTED) ? null : fp);
+				}
+			} catch (IOException e) {
+				// Recompute
+			}
+		}
+		String fp = computeFingerprint(f);
+		try {
+			BufferedWriter writer = new BufferedWriter(new FileWriter(cached));
+			writer.write(stamp + " " + (fp != null ? fp : UNSUPPORTED) + "\n");
+			writer.close();
+		} catch (IOException e) {
+			// The fingerprint cannot be cached, e.g., in a read-only folder
+		}
+		return fp;
+	}
+
+
+	/**
+	 * Compute the fingerprint of the given results file
+	 * @param f	Results file
+	 * @return Fingerprint as a 32 digit hexadecimal string, or null if the file has no fingerprint
+	 */
+	public static String computeFingerprint(File f) {
+		ClassDictionary dictionary = new ClassDictionary();
+		SubsumptionSet set;
+		try {
+			set = new HierarchyReader(dictionary).read(f);
+		} catch (IOException e) {
+			return null;
+		}
+		return (set != null ? combine(set, dictionary) : null);
+	}
+
+
+	/**
+	 * Combine the hashes of all subsumptions, other than those of owl:Thing or by owl:Nothing, by addition so that
+	 * the order of the subsumptions is irrelevant
+	 * @param set	Set of subsumptions
+	 * @param dictionary	Class dictionary
+	 * @return Fingerprint as a 32 digit hexadecimal string, or null if there are no subsumptions to combine
+	 */
+	private static String combine(SubsumptionSet set, ClassDictionary dictionary) {
+		int thing = dictionary.getId(HierarchyReader.OWL + "Thing"), nothing = dictionary.getId(HierarchyReader.OWL + "Nothing");
+		long[] hashes = new long[2*dictionary.size()];
+		boolean[] hashed = new boolean[dictionary.size()];
+		long hi = 0, lo = 0, count = 0;
+		for(int i = 0; i < set.size(); i++) {
+			int sub = SubsumptionSet.sub(set.get(i)), sup = SubsumptionSet.sup(set.get(i));
+			if(sub == nothing || sup == thing)
+				continue;
+			hash(sub, hashes, hashed, dictionary);
+			hash(sup, hashes, hashed, dictionary);
+			hi += mix(hashes[2*sub] ^ Long.rotateLeft(hashes[2*sup], 32));
+			lo += mix(hashes[2*sub+1] ^ Long.rotateLeft(hashes[2*sup+1], 32));
+			count++;
+		}
+		return (count > 0 ? String.format("%016x%016x", mix(hi ^ count), mix(lo + count)) : null);
+	}
+
+
+	/**
+	 * Compute the 128-bit hash (the MD5 digest) of the IRI of the given class, unless already computed
+	 * @param id	Class identifier
+	 * @param hashes	Array of hashes, two longs per class
+	 * @param hashed	Array indicating which classes have been hashed
+	 * @param dictionary	Class dictionary
+	 */
+	private static void hash(int id, long[] hashes, boolean[] hashed, ClassDictionary dictionary) {
+		if(hashed[id]) return;
+		byte[] digest = md5(dictionary.getIri(id));
+		hashes[2*id] = toLong(digest, 0);
+		hashes[2*id+1] = toLong(digest, 8);
+		hashed[id] = true;
+	}
+
+
+	/**
+	 * Finalisation step of the 64-bit MurmurHash3
+	 * @param h	Value
+	 * @return Mixed value
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+
+	/**
+	 * Get the MD5 digest of the given string
+	 * @param s	String
+	 * @return MD5 digest
+	 */
+	private static byte[] md5(String s) {
+		try {
+			return MessageDigest.getInstance("MD5").digest(s.getBytes("UTF-8"));
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+
+	/**
+	 * Read 8 bytes of the given array as a long
+	 * @param b	Byte array
+	 * @param offset	Offset
+	 * @return Long value
+	 */
+	private static long toLong(byte[] b, int offset) {
+		long l = 0;
+		for(int i = offset; i < offset+8; i++)
+			l = (l << 8) | (b[i] & 0xff);
+		return l;
+	}
+}
@@ -0,0 +1,104 @@
+package uk.ac.manchester.cs.ore.results;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Typed columns of a {@link ResultStore}. String columns are dictionary encoded within each block of the store,
+ * and numeric columns are stored as doubles, along with their minimum and maximum values in each block.
+ * Besides the times reported by the reasoner itself (<i>time</i> and <i>cputime</i>) and the external duration,
+ * records of reasoners run by the {@link uk.ac.manchester.cs.ore.runner.ReasonerProcessLauncher} hold the resources
+ * used by the reasoner's process tree: wall clock, user and system CPU time (in milliseconds), peak resident set 
+ * size (in kilobytes), and the number of voluntary and involuntary context switches, as well as the reasoner's 
+ * exit code. Records of runs of the {@link uk.ac.manchester.cs.ore.wrapper.SimpleReasonerWrapper} also hold the 
+ * wall clock and CPU time (in milliseconds) and allocated bytes of each of its phases: parsing, reasoner creation, 
+ * precomputation of inferences, hierarchy extraction, pruning and serialization. Reasoners that report their
+ * preprocessing time separately have it recorded (also) on its own, in <i>preptime</i> and <i>prepcpu</i>.
+ * </p>
+ */
+public enum Column {
+	ONTOLOGY("ontology", false),
+	REASONER("reasoner", false),
+	OPERATION("operation", false),
+	CONCEPT("concept", false),
+	STATUS("status", false),
+	ERROR("error", false),
+	OP_TIME("time", true),
+	CPU_TIME("cputime", true),
+	DURATION("duration", true),
+	EXIT_CODE("exitcode", true),
+	WALL_TIME("walltime", true),
+	USER_TIME("usertime", true),
+	SYS_TIME("systime", true),
+	PEAK_RSS("peakrss", true),
+	VOLUNTARY_SWITCHES("vcsw", true),
+	INVOLUNTARY_SWITCHES("ivcsw", true),
+	PARSE_TIME("parsetime", true),
+	PARSE_CPU_TIME("parsecpu", true),
+	PARSE_ALLOCATED("parsealloc", true),
+	CREATE_TIME("createtime", true),
+	CREATE_CPU_TIME("createcpu", true),
+	CREATE_ALLOCATED("createalloc", true),
+	PRECOMPUTE_TIME("precomptime", true),
+	PRECOMPUTE_CPU_TIME("precompcpu", true),
+	PRECOMPUTE_ALLOCATED("precompalloc", true),
+	EXTRACT_TIME("extracttime", true),
+	EXTRACT_CPU_TIME("extractcpu", true),
+	EXTRACT_ALLOCATED("extractalloc", true),
+	PRUNE_TIME("prunetime", true),
+	PRUNE_CPU_TIME("prunecpu", true),
+	PRUNE_ALLOCATED("prunealloc", true),
+	SERIALIZE_TIME("sertime", true),
+	SERIALIZE_CPU_TIME("sercpu", true),
+	SERIALIZE_ALLOCATED("seralloc", true),
+	PREPROCESS_TIME("preptime", true),
+	PREPROCESS_CPU_TIME("prepcpu", true);
+	
+	private final String name;
+	private final boolean numeric;
+	
+	/**
+	 * Constructor
+	 * @param name	Column name
+	 * @param numeric	true if the column holds numbers, false if it holds strings
+	 */
+	private Column(String name, boolean numeric) {
+		this.name = name;
+		this.numeric = numeric;
+	}
+	
+	
+	/**
+	 * Get the column name
+	 * @return Column name
+	 */
+	public String getName() {
+		return name;
+	}
+	
+	
+	/**
+	 * Check whether the column holds numbers
+	 * @return true if the column holds numbers, false if it holds strings
+	 */
+	public boolean isNumeric() {
+		return numeric;
+	}
+	
+	
+	/**
+	 * Get the column with the given (case-insensitive) name
+	 * @param name	Column name
+	 * @return Column
+	 * @throws IllegalArgumentException	if there is no such column
+	 */
+	public static Column forName(String name) {
+		for(Column c : values()) {
+			if(c.name.equalsIgnoreCase(name))
+				return c;
+		}
+		throw new IllegalArgumentException("Unknown column: " + name);
+	}
+}
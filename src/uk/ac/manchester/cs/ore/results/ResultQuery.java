@@ -0,0 +1,97 @@
+package uk.ac.manchester.cs.ore.results;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Conjunction of predicates over the columns of a {@link ResultStore}, i.e., string columns equal to given values 
+ * and numeric columns within given ranges. The store evaluates the predicates against the dictionaries and value 
+ * ranges of each block first, so that blocks without matching rows are skipped without being decoded. An empty 
+ * query matches all rows.
+ * </p>
+ */
+public class ResultQuery {
+	final List<Column> stringColumns = new ArrayList<Column>(), numericColumns = new ArrayList<Column>();
+	final List<String> values = new ArrayList<String>();
+	final List<double[]> ranges = new ArrayList<double[]>();
+	
+	/**
+	 * Require the given string column to be equal to the given value
+	 * @param c	String column
+	 * @param value	Value
+	 * @return This query
+	 */
+	public ResultQuery equalTo(Column c, String value) {
+		if(c.isNumeric())
+			throw new IllegalArgumentException("Not a string column: " + c.getName());
+		stringColumns.add(c);
+		values.add(value);
+		return this;
+	}
+	
+	
+	/**
+	 * Require the given numeric column to be within the given (inclusive) range 
+	 * @param c	Numeric column
+	 * @param min	Minimum value
+	 * @param max	Maximum value
+	 * @return This query
+	 */
+	public ResultQuery between(Column c, double min, double max) {
+		if(!c.isNumeric())
+			throw new IllegalArgumentException("Not a numeric column: " + c.getName());
+		numericColumns.add(c);
+		ranges.add(new double[] {min, max});
+		return this;
+	}
+	
+	
+	/**
+	 * Parse a predicate of the form <i>column=value</i>, or <i>column=min..max</i> for numeric columns, and add 
+	 * it to this query
+	 * @param predicate	Predicate
+	 * @return This query
+	 * @throws IllegalArgumentException	if the predicate cannot be parsed
+	 */
+	public ResultQuery parse(String predicate) {
+		int sep = predicate.indexOf('=');
+		if(sep < 0)
+			throw new IllegalArgumentException("Invalid predicate: " + predicate);
+		Column c = Column.forName(predicate.substring(0, sep).trim());
+		String value = predicate.substring(sep+1).trim();
+		if(!c.isNumeric())
+			return equalTo(c, value);
+		int range = value.indexOf("..");
+		try {
+			if(range < 0)
+				return between(c, Double.parseDouble(value), Double.parseDouble(value));
+			return between(c, Double.parseDouble(value.substring(0, range)), Double.parseDouble(value.substring(range+2)));
+		} catch (NumberFormatException e) {
+			throw new IllegalArgumentException("Invalid predicate: " + predicate, e);
+		}
+	}
+	
+	
+	/**
+	 * Check whether the given record satisfies all predicates of this query
+	 * @param r	Result record
+	 * @return true if the record matches the query, false otherwise
+	 */
+	public boolean matches(ResultRecord r) {
+		for(int i = 0; i < stringColumns.size(); i++) {
+			if(!r.getString(stringColumns.get(i)).equals(values.get(i)))
+				return false;
+		}
+		for(int i = 0; i < numericColumns.size(); i++) {
+			double v = r.getDouble(numericColumns.get(i));
+			if(!(v >= ranges.get(i)[0] && v <= ranges.get(i)[1]))
+				return false;
+		}
+		return true;
+	}
+}
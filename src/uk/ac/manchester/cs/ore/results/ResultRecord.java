@@ -0,0 +1,229 @@
+package uk.ac.manchester.cs.ore.results;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * A single, immutable row of a {@link ResultStore}: the outcome of one operation of one reasoner on one ontology 
+ * (and concept, where applicable). Missing strings are stored as empty strings, and missing numbers as NaN.
+ * Numeric values other than the reported times and duration (e.g., the resources measured by the process 
+ * launcher) are given as a map from columns to values.
+ * </p>
+ */
+public class ResultRecord {
+	private final String ontology, reasoner, operation, concept, status, error;
+	private final double[] values;
+	
+	/**
+	 * Constructor
+	 * @param ontology	Ontology file name
+	 * @param reasoner	Reasoner name
+	 * @param operation	Operation name
+	 * @param concept	Concept URI, or null if not applicable
+	 * @param status	Status, e.g., ok | timeout | error for benchmark runs, or the verdict for verification results
+	 * @param error	Error message, or null if there is none
+	 * @param opTime	Operation time (in milliseconds)
+	 * @param cpuTime	Operation CPU time (in milliseconds)
+	 * @param duration	External duration (in seconds)
+	 */
+	public ResultRecord(String ontology, String reasoner, String operation, String concept, String status, String error,
+			double opTime, double cpuTime, double duration) {
+		this(ontology, reasoner, operation, concept, status, error, getTimes(opTime, cpuTime, duration));
+	}
+	
+	
+	/**
+	 * Constructor
+	 * @param ontology	Ontology file name
+	 * @param reasoner	Reasoner name
+	 * @param operation	Operation name
+	 * @param concept	Concept URI, or null if not applicable
+	 * @param status	Status, e.g., ok | timeout | error for benchmark runs, or the verdict for verification results
+	 * @param error	Error message, or null if there is none
+	 * @param values	Map of numeric columns to their values; columns that are not in the map are NaN
+	 */
+	public ResultRecord(String ontology, String reasoner, String operation, String concept, String status, String error,
+			Map<Column,Double> values) {
+		this.ontology = nonNull(ontology);
+		this.reasoner = nonNull(reasoner);
+		this.operation = nonNull(operation);
+		this.concept = nonNull(concept);
+		this.status = nonNull(status);
+		this.error = nonNull(error);
+		this.values = new double[Column.values().length];
+		Arrays.fill(this.values, Double.NaN);
+		for(Map.Entry<Column,Double> e : values.entrySet()) {
+			if(!e.getKey().isNumeric())
+				throw new IllegalArgumentException("Not a numeric column: " + e.getKey().getName());
+			this.values[e.getKey().ordinal()] = e.getValue();
+		}
+	}
+	
+	
+	/**
+	 * Constructor used when decoding records, which takes ownership of the given array
+	 * @param strings	Values of the string columns, indexed by column ordinal
+	 * @param values	Values of the numeric columns, indexed by column ordinal
+	 */
+	ResultRecord(String[] strings, double[] values) {
+		this.ontology = strings[Column.ONTOLOGY.ordinal()];
+		this.reasoner = strings[Column.REASONER.ordinal()];
+		this.operation = strings[Column.OPERATION.ordinal()];
+		this.concept = strings[Column.CONCEPT.ordinal()];
+		this.status = strings[Column.STATUS.ordinal()];
+		this.error = strings[Column.ERROR.ordinal()];
+		this.values = values;
+	}
+	
+	
+	/**
+	 * Get the value of the given string column
+	 * @param c	String column
+	 * @return Value, or the empty string if there is none
+	 */
+	public String getString(Column c) {
+		switch(c) {
+		case ONTOLOGY: return ontology;
+		case REASONER: return reasoner;
+		case OPERATION: return operation;
+		case CONCEPT: return concept;
+		case STATUS: return status;
+		case ERROR: return error;
+		default: throw new IllegalArgumentException("Not a string column: " + c.getName());
+		}
+	}
+	
+	
+	/**
+	 * Get the value of the given numeric column
+	 * @param c	Numeric column
+	 * @return Value, or NaN if there is none
+	 */
+	public double getDouble(Column c) {
+		if(!c.isNumeric())
+			throw new IllegalArgumentException("Not a numeric column: " + c.getName());
+		return values[c.ordinal()];
+	}
+	
+	
+	/**
+	 * Get ontology file name
+	 * @return Ontology file name
+	 */
+	public String getOntology() {
+		return ontology;
+	}
+	
+	
+	/**
+	 * Get reasoner name
+	 * @return Reasoner name
+	 */
+	public String getReasoner() {
+		return reasoner;
+	}
+	
+	
+	/**
+	 * Get operation name
+	 * @return Operation name
+	 */
+	public String getOperation() {
+		return operation;
+	}
+	
+	
+	/**
+	 * Get concept URI
+	 * @return Concept URI, or the empty string if not applicable
+	 */
+	public String getConcept() {
+		return concept;
+	}
+	
+	
+	/**
+	 * Get status
+	 * @return Status
+	 */
+	public String getStatus() {
+		return status;
+	}
+	
+	
+	/**
+	 * Get error message
+	 * @return Error message, or the empty string if there is none
+	 */
+	public String getError() {
+		return error;
+	}
+	
+	
+	/**
+	 * Get operation time
+	 * @return Operation time (in milliseconds)
+	 */
+	public double getOpTime() {
+		return values[Column.OP_TIME.ordinal()];
+	}
+	
+	
+	/**
+	 * Get operation CPU time
+	 * @return Operation CPU time (in milliseconds)
+	 */
+	public double getCpuTime() {
+		return values[Column.CPU_TIME.ordinal()];
+	}
+	
+	
+	/**
+	 * Get external duration
+	 * @return External duration (in seconds)
+	 */
+	public double getDuration() {
+		return values[Column.DURATION.ordinal()];
+	}
+	
+	
+	/**
+	 * Get a map of the reported times and external duration
+	 * @param opTime	Operation time (in milliseconds)
+	 * @param cpuTime	Operation CPU time (in milliseconds)
+	 * @param duration	External duration (in seconds)
+	 * @return Map of numeric columns to their values
+	 */
+	private static Map<Column,Double> getTimes(double opTime, double cpuTime, double duration) {
+		Map<Column,Double> values = new EnumMap<Column,Double>(Column.class);
+		values.put(Column.OP_TIME, opTime);
+		values.put(Column.CPU_TIME, cpuTime);
+		values.put(Column.DURATION, duration);
+		return values;
+	}
+	
+	
+	/**
+	 * Replace null strings by empty ones
+	 * @param s	String
+	 * @return Given string, or the empty string if null
+	 */
+	private static String nonNull(String s) {
+		return (s != null ? s : "");
+	}
+	
+	
+	@Override
+	public String toString() {
+		String out = "";
+		for(Column c : Column.values())
+			out += (c.isNumeric() ? "" + getDouble(c) : getString(c)) + ",";
+		return out;
+	}
+}
@@ -0,0 +1,215 @@
+package uk.ac.manchester.cs.ore.results;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Sink for the rows of shared results files (csv files and {@link ResultStore}s), which can be used by any number
+ * of threads. Appends are queued and carried out by a single writer thread, which takes all appends queued at
+ * that point, groups them by file, and writes each group with a single write while holding an exclusive lock
+ * on the file, so that rows written by concurrent threads or processes (e.g., parallel runs of the <b>start</b>
+ * script) never interleave. Each group is then forced to the storage device once, so that the cost of syncing
+ * is shared by all appends in the group. The <b>append</b> methods return once their rows have been written
+ * and synced.
+ * </p>
+ */
+public class ResultSink {
+	private static final int MAX_BATCH = 4096;
+	private static ResultSink instance;
+	private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<Entry>();
+
+	/**
+	 * Constructor
+	 */
+	public ResultSink() {
+		Thread writer = new Thread(new Runnable() {
+			public void run() {
+				try {
+					while(true) {
+						List<Entry> batch = new ArrayList<Entry>();
+						batch.add(queue.take());
+						queue.drainTo(batch, MAX_BATCH-1);
+						write(batch);
+					}
+				} catch (InterruptedException e) {
+					// Stop writing
+				}
+			}
+		}, "result-sink");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+
+	/**
+	 * Get the sink shared by all threads of this process
+	 * @return Results sink
+	 */
+	public static synchronized ResultSink getInstance() {
+		if(instance == null)
+			instance = new ResultSink();
+		return instance;
+	}
+
+
+	/**
+	 * Append the given lines to the given text (e.g., csv) file, which is created if necessary
+	 * @param file	Text file
+	 * @param lines	List of lines, without line terminators
+	 * @throws IOException
+	 */
+	public void append(File file, List<String> lines) throws IOException {
+		submit(new Entry(file, lines, null));
+	}
+
+
+	/**
+	 * Append the given records to the given results store
+	 * @param store	Results store
+	 * @param records	List of records
+	 * @throws IOException
+	 */
+	public void append(ResultStore store, List<ResultRecord> records) throws IOException {
+		submit(new Entry(store.getFile(), null, records));
+	}
+
+
+	/**
+	 * Queue the given append and wait until it has been carried out
+	 * @param e	Append
+	 * @throws IOException	if the append failed
+	 */
+	private void submit(Entry e) throws IOException {
+		queue.add(e);
+		try {
+			e.done.await();
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while appending to " + e.file);
+		}
+		if(e.error != null)
+			throw new IOException("Unable to append to " + e.file, e.error);
+	}
+
+
+	/**
+	 * Carry out the given appends, grouped by file, and notify their callers
+	 * @param batch	List of appends
+	 */
+	private void write(List<Entry> batch) {
+		Map<String,List<Entry>> groups = new LinkedHashMap<String,List<Entry>>();
+		for(Entry e : batch) {
+			String key = (e.lines != null ? "txt:" : "store:") + e.file.getAbsolutePath();
+			List<Entry> group = groups.get(key);
+			if(group == null) {
+				group = new ArrayList<Entry>();
+				groups.put(key, group);
+			}
+			group.add(e);
+		}
+		for(List<Entry> group : groups.values()) {
+			IOException error = null;
+			try {
+				if(group.get(0).lines != null)
+					writeLines(group);
+				else
+					writeRecords(group);
+			} catch (IOException e) {
+				error = e;
+			} catch (RuntimeException e) {
+				error = new IOException(e);
+			}
+			for(Entry e : group) {
+				e.error = error;
+				e.done.countDown();
+			}
+		}
+	}
+
+
+	/**
+	 * Append the lines of the given appends to their (common) text file
+	 * @param group	List of appends to the same text file
+	 * @throws IOException
+	 */
+	private void writeLines(List<Entry> group) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		for(Entry e : group) {
+			for(String line : e.lines)
+				sb.append(line).append('\n');
+		}
+		File file = group.get(0).file;
+		File dir = file.getAbsoluteFile().getParentFile();
+		if(dir != null) dir.mkdirs();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel ch = raf.getChannel();
+			FileLock lock = ch.lock();
+			try {
+				ch.position(ch.size());
+				ByteBuffer buf = ByteBuffer.wrap(sb.toString().getBytes());
+				while(buf.hasRemaining())
+					ch.write(buf);
+				ch.force(false);
+			} finally {
+				lock.release();
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+
+	/**
+	 * Append the records of the given appends to their (common) results store
+	 * @param group	List of appends to the same results store
+	 * @throws IOException
+	 */
+	private void writeRecords(List<Entry> group) throws IOException {
+		List<ResultRecord> records = new ArrayList<ResultRecord>();
+		for(Entry e : group)
+			records.addAll(e.records);
+		new ResultStore(group.get(0).file).append(records, true);
+	}
+
+
+	/**
+	 * Queued append of either lines to a text file or records to a results store
+	 */
+	private static class Entry {
+		private final File file;
+		private final List<String> lines;
+		private final List<ResultRecord> records;
+		private final CountDownLatch done = new CountDownLatch(1);
+		private volatile IOException error;
+
+		/**
+		 * Constructor
+		 * @param file	Target file
+		 * @param lines	Lines to append, or null if appending records
+		 * @param records	Records to append, or null if appending lines
+		 */
+		public Entry(File file, List<String> lines, List<ResultRecord> records) {
+			this.file = file;
+			this.lines = lines;
+			this.records = records;
+		}
+	}
+}
@@ -0,0 +1,583 @@
+package uk.ac.manchester.cs.ore.results;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Embedded, append-only columnar store of {@link ResultRecord}s in a single file. Each call to <b>append</b> adds
+ * one or more self-contained blocks of (at most {@link #BLOCK_SIZE}) records to the end of the file, while holding
+ * an exclusive lock on it, so that appends by concurrent processes never interleave. Within a block, the values
+ * of each column are stored together: strings as codes into a per-block dictionary, and numbers as doubles.
+ * <br/><br/>
+ * The dictionaries and the value range of each numeric column are kept at the start of each block, ahead of
+ * the column data, so that a scan with a {@link ResultQuery} skips any block that cannot contain a matching row
+ * without reading its data, and only decodes the rows that match. Stores that grew by many small appends (e.g.,
+ * one per run of the <b>start</b> script) can be rewritten into full blocks with <b>compact</b>. A block left
+ * incomplete by an interrupted append is ignored by scans, and truncated by the next append.
+ * <br/><br/>
+ * Each block lists the columns it holds, so that columns can be added to {@link Column} without rewriting
+ * existing stores: columns that a block does not hold (e.g., the resource usage columns in blocks written before
+ * those were added) read as empty strings or NaN, and numeric columns that are NaN throughout a block are not
+ * written at all. Blocks of the first version of the format, which have an implicit column list, are still read.
+ * </p>
+ */
+public class ResultStore {
+	public static final String EXTENSION = ".ores";
+	public static final int BLOCK_SIZE = 65536;
+	private static final int MAGIC = 0x4f524542, VERSION = 2, HEADER_SIZE = 20;
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final Column[] COLUMNS = Column.values(), V1_COLUMNS = {Column.ONTOLOGY, Column.REASONER, Column.OPERATION,
+		Column.CONCEPT, Column.STATUS, Column.ERROR, Column.OP_TIME, Column.CPU_TIME, Column.DURATION};
+	private final File file;
+
+	/**
+	 * Constructor
+	 * @param file	Store file, which is created upon the first append
+	 */
+	public ResultStore(File file) {
+		this.file = file;
+	}
+
+
+	/**
+	 * Get the store file
+	 * @return Store file
+	 */
+	public File getFile() {
+		return file;
+	}
+
+
+	/**
+	 * Append the given records to the store
+	 * @param records	List of records
+	 * @throws IOException
+	 */
+	public void append(List<ResultRecord> records) throws IOException {
+		append(records, false);
+	}
+
+
+	/**
+	 * Append the given records to the store, and optionally force them to the storage device before returning
+	 * @param records	List of records
+	 * @param sync	true if the appended records should be forced to the storage device, false otherwise
+	 * @throws IOException
+	 */
+	public void append(List<ResultRecord> records, boolean sync) throws IOException {
+		if(records.isEmpty()) return;
+		File dir = file.getAbsoluteFile().getParentFile();
+		if(dir != null) dir.mkdirs();
+		RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			FileChannel ch = raf.getChannel();
+			FileLock lock = ch.lock();
+			try {
+				long end = getValidLength(ch);
+				if(end < ch.size()) ch.truncate(end);
+				ch.position(end);
+				for(int i = 0; i < records.size(); i += BLOCK_SIZE)
+					write(ch, encode(records.subList(i, Math.min(records.size(), i + BLOCK_SIZE))));
+				if(sync) ch.force(false);
+			} finally {
+				lock.release();
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+
+	/**
+	 * Pass each record that matches the given query to the given handler, in the order the records were appended
+	 * @param query	Query
+	 * @param handler	Record handler
+	 * @throws IOException
+	 */
+	public void scan(ResultQuery query, RecordHandler handler) throws IOException {
+		if(!file.exists()) return;
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel ch = raf.getChannel();
+			long pos = 0, size = ch.size();
+			while(pos + HEADER_SIZE <= size) {
+				ByteBuffer header = read(ch, pos, HEADER_SIZE);
+				int magic = header.getInt(), version = header.getInt();
+				if(magic != MAGIC || version < 1 || version > VERSION) {
+					System.err.println("! Invalid block in results store " + file.getName() + " at offset " + pos);
+					break;
+				}
+				int rows = header.getInt(), metaLength = header.getInt(), dataLength = header.getInt();
+				if(pos + HEADER_SIZE + metaLength + dataLength > size)
+					break;	// Incomplete block
+				Block block = new Block(rows, version, read(ch, pos + HEADER_SIZE, metaLength));
+				if(block.bind(query))
+					block.scan(read(ch, pos + HEADER_SIZE + metaLength, dataLength), handler);
+				pos += HEADER_SIZE + metaLength + dataLength;
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+
+	/**
+	 * Get all records that match the given query
+	 * @param query	Query
+	 * @return List of matching records
+	 * @throws IOException
+	 */
+	public List<ResultRecord> select(ResultQuery query) throws IOException {
+		final List<ResultRecord> out = new ArrayList<ResultRecord>();
+		scan(query, new RecordHandler() {
+			public void handle(ResultRecord r) {
+				out.add(r);
+			}
+		});
+		return out;
+	}
+
+
+	/**
+	 * Rewrite the store into as few blocks as possible. This should only be done while no run is appending to
+	 * the store, as appends made to the old file during compaction are lost
+	 * @throws IOException
+	 */
+	public void compact() throws IOException {
+		List<ResultRecord> records = select(new ResultQuery());
+		File tmp = new File(file.getPath() + ".tmp");
+		if(tmp.exists() && !tmp.delete())
+			throw new IOException("Unable to delete " + tmp);
+		new ResultStore(tmp).append(records);
+		if(records.isEmpty()) return;
+		if(!tmp.renameTo(file) && !(file.delete() && tmp.renameTo(file)))
+			throw new IOException("Unable to replace " + file + " with its compacted copy");
+	}
+
+
+	/**
+	 * Get the length of the prefix of the store that consists of complete blocks
+	 * @param ch	Store file channel
+	 * @return Length (in bytes)
+	 * @throws IOException
+	 */
+	private long getValidLength(FileChannel ch) throws IOException {
+		long pos = 0, size = ch.size();
+		while(pos + HEADER_SIZE <= size) {
+			ByteBuffer header = read(ch, pos, HEADER_SIZE);
+			int magic = header.getInt(), version = header.getInt();
+			if(magic != MAGIC || version < 1 || version > VERSION)
+				throw new IOException("Invalid block in results store " + file.getName() + " at offset " + pos);
+			header.getInt();
+			long next = pos + HEADER_SIZE + header.getInt() + header.getInt();
+			if(next > size) break;
+			pos = next;
+		}
+		return pos;
+	}
+
+
+	/**
+	 * Encode the given records as a block
+	 * @param records	List of records
+	 * @return Buffer with the encoded block
+	 * @throws IOException
+	 */
+	private ByteBuffer encode(List<ResultRecord> records) throws IOException {
+		int rows = records.size();
+		ByteArrayOutputStream metaBytes = new ByteArrayOutputStream(), dataBytes = new ByteArrayOutputStream(64*rows);
+		DataOutputStream meta = new DataOutputStream(metaBytes), data = new DataOutputStream(dataBytes);
+		List<Column> columns = new ArrayList<Column>();
+		for(Column c : COLUMNS) {
+			if(!c.isNumeric() || hasValues(records, c))
+				columns.add(c);
+		}
+		meta.writeInt(columns.size());
+		for(Column c : columns) {
+			meta.writeUTF(c.getName());
+			meta.writeBoolean(c.isNumeric());
+		}
+		for(Column c : columns) {
+			if(c.isNumeric()) {
+				double min = Double.POSITIVE_INFINITY, max = Double.NEGATIVE_INFINITY;
+				for(ResultRecord r : records) {
+					double v = r.getDouble(c);
+					data.writeDouble(v);
+					if(v < min) min = v;
+					if(v > max) max = v;
+				}
+				meta.writeDouble(min);
+				meta.writeDouble(max);
+				continue;
+			}
+			Map<String,Integer> dict = new LinkedHashMap<String,Integer>();
+			int[] codes = new int[rows];
+			for(int i = 0; i < rows; i++) {
+				String s = records.get(i).getString(c);
+				Integer code = dict.get(s);
+				if(code == null) {
+					code = dict.size();
+					dict.put(s, code);
+				}
+				codes[i] = code;
+			}
+			meta.writeInt(dict.size());
+			for(String s : dict.keySet()) {
+				byte[] b = s.getBytes(UTF8);
+				meta.writeInt(b.length);
+				meta.write(b);
+			}
+			int width = getCodeWidth(dict.size());
+			for(int code : codes) {
+				if(width == 1) data.writeByte(code);
+				else if(width == 2) data.writeShort(code);
+				else data.writeInt(code);
+			}
+		}
+		meta.close(); data.close();
+
+		ByteBuffer block = ByteBuffer.allocate(HEADER_SIZE + metaBytes.size() + dataBytes.size());
+		block.putInt(MAGIC).putInt(VERSION).putInt(rows).putInt(metaBytes.size()).putInt(dataBytes.size());
+		block.put(metaBytes.toByteArray()).put(dataBytes.toByteArray());
+		block.flip();
+		return block;
+	}
+
+
+	/**
+	 * Get the number of bytes used by each code of a dictionary of the given size
+	 * @param size	Dictionary size
+	 * @return Code width (in bytes)
+	 */
+	private static int getCodeWidth(int size) {
+		return (size <= 256 ? 1 : size <= 65536 ? 2 : 4);
+	}
+
+
+	/**
+	 * Check whether any of the given records has a value (i.e., other than NaN) in the given numeric column
+	 * @param records	List of records
+	 * @param c	Numeric column
+	 * @return true if some record has a value in the column, false otherwise
+	 */
+	private static boolean hasValues(List<ResultRecord> records, Column c) {
+		for(ResultRecord r : records) {
+			if(!Double.isNaN(r.getDouble(c)))
+				return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * Read the given number of bytes at the given position of a channel
+	 * @param ch	File channel
+	 * @param pos	Position
+	 * @param length	Number of bytes
+	 * @return Buffer with the bytes read
+	 * @throws IOException
+	 */
+	private static ByteBuffer read(FileChannel ch, long pos, int length) throws IOException {
+		ByteBuffer buf = ByteBuffer.allocate(length);
+		while(buf.hasRemaining()) {
+			if(ch.read(buf, pos + buf.position()) < 0)
+				throw new IOException("Unexpected end of results store");
+		}
+		buf.flip();
+		return buf;
+	}
+
+
+	/**
+	 * Write the given buffer at the current position of a channel
+	 * @param ch	File channel
+	 * @param buf	Buffer
+	 * @throws IOException
+	 */
+	private static void write(FileChannel ch, ByteBuffer buf) throws IOException {
+		while(buf.hasRemaining())
+			ch.write(buf);
+	}
+
+
+	/**
+	 * A block of the store whose metadata, i.e., the column list, dictionaries and value ranges, has been decoded
+	 */
+	private static class Block {
+		private final int rows;
+		private final Column[] columns;
+		private final String[][] dicts;
+		private final double[] mins, maxs;
+		private final int[] offsets, codeWidths, slots = new int[COLUMNS.length];
+		private int[] stringIndexes, numericIndexes, codes;
+		private double[][] ranges;
+
+		/**
+		 * Constructor
+		 * @param rows	Number of rows
+		 * @param version	Format version of the block
+		 * @param meta	Block metadata
+		 */
+		public Block(int rows, int version, ByteBuffer meta) {
+			this.rows = rows;
+			boolean[] numeric;
+			if(version == 1) {
+				columns = V1_COLUMNS.clone();
+				numeric = new boolean[columns.length];
+				for(int i = 0; i < columns.length; i++)
+					numeric[i] = columns[i].isNumeric();
+			}
+			else {
+				columns = new Column[meta.getInt()];
+				numeric = new boolean[columns.length];
+				for(int i = 0; i < columns.length; i++) {
+					byte[] b = new byte[meta.getShort() & 0xffff];
+					meta.get(b);
+					numeric[i] = meta.get() != 0;
+					columns[i] = getColumn(new String(b, UTF8), numeric[i]);
+				}
+			}
+			dicts = new String[columns.length][];
+			mins = new double[columns.length];
+			maxs = new double[columns.length];
+			offsets = new int[columns.length];
+			codeWidths = new int[columns.length];
+			Arrays.fill(slots, -1);
+			int offset = 0;
+			for(int i = 0; i < columns.length; i++) {
+				if(columns[i] != null) slots[columns[i].ordinal()] = i;
+				offsets[i] = offset;
+				if(numeric[i]) {
+					mins[i] = meta.getDouble();
+					maxs[i] = meta.getDouble();
+					offset += 8*rows;
+					continue;
+				}
+				dicts[i] = new String[meta.getInt()];
+				for(int j = 0; j < dicts[i].length; j++) {
+					byte[] b = new byte[meta.getInt()];
+					meta.get(b);
+					dicts[i][j] = new String(b, UTF8);
+				}
+				codeWidths[i] = getCodeWidth(dicts[i].length);
+				offset += codeWidths[i]*rows;
+			}
+		}
+
+
+		/**
+		 * Get the column with the given name and type
+		 * @param name	Column name
+		 * @param numeric	true if the column holds numbers, false if it holds strings
+		 * @return Column, or null if there is no such column (e.g., in a block written by a later version)
+		 */
+		private static Column getColumn(String name, boolean numeric) {
+			for(Column c : COLUMNS) {
+				if(c.getName().equals(name) && c.isNumeric() == numeric)
+					return c;
+			}
+			return null;
+		}
+
+
+		/**
+		 * Bind the predicates of the given query to this block, i.e., find the dictionary codes of the values
+		 * that string columns should be equal to, and check the value ranges of numeric columns
+		 * @param query	Query
+		 * @return true if the block may contain rows that match the query, false otherwise
+		 */
+		public boolean bind(ResultQuery query) {
+			int n = query.stringColumns.size(), bound = 0;
+			stringIndexes = new int[n];
+			codes = new int[n];
+			for(int i = 0; i < n; i++) {
+				int col = slots[query.stringColumns.get(i).ordinal()];
+				String value = query.values.get(i);
+				if(col < 0) {
+					if(value.isEmpty()) continue;	// Columns a block does not hold are empty
+					return false;
+				}
+				stringIndexes[bound] = col;
+				codes[bound] = indexOf(dicts[col], value);
+				if(codes[bound++] < 0) return false;
+			}
+			stringIndexes = Arrays.copyOf(stringIndexes, bound);
+			codes = Arrays.copyOf(codes, bound);
+			int m = query.numericColumns.size();
+			numericIndexes = new int[m];
+			ranges = new double[m][];
+			for(int i = 0; i < m; i++) {
+				numericIndexes[i] = slots[query.numericColumns.get(i).ordinal()];
+				ranges[i] = query.ranges.get(i);
+				if(numericIndexes[i] < 0 || maxs[numericIndexes[i]] < ranges[i][0] || mins[numericIndexes[i]] > ranges[i][1])
+					return false;
+			}
+			return true;
+		}
+
+
+		/**
+		 * Pass the rows of this block that match the bound query to the given handler
+		 * @param data	Block data
+		 * @param handler	Record handler
+		 */
+		public void scan(ByteBuffer data, RecordHandler handler) {
+			for(int row = 0; row < rows; row++) {
+				if(matches(data, row))
+					handler.handle(decode(data, row));
+			}
+		}
+
+
+		/**
+		 * Check whether the given row matches the bound query
+		 * @param data	Block data
+		 * @param row	Row index
+		 * @return true if the row matches, false otherwise
+		 */
+		private boolean matches(ByteBuffer data, int row) {
+			for(int i = 0; i < codes.length; i++) {
+				if(getCode(data, stringIndexes[i], row) != codes[i])
+					return false;
+			}
+			for(int i = 0; i < ranges.length; i++) {
+				double v = getDouble(data, numericIndexes[i], row);
+				if(!(v >= ranges[i][0] && v <= ranges[i][1]))
+					return false;
+			}
+			return true;
+		}
+
+
+		/**
+		 * Decode the given row
+		 * @param data	Block data
+		 * @param row	Row index
+		 * @return Result record
+		 */
+		private ResultRecord decode(ByteBuffer data, int row) {
+			String[] s = new String[COLUMNS.length];
+			double[] v = new double[COLUMNS.length];
+			Arrays.fill(s, "");
+			Arrays.fill(v, Double.NaN);
+			for(int i = 0; i < columns.length; i++) {
+				if(columns[i] == null) continue;
+				if(dicts[i] != null)
+					s[columns[i].ordinal()] = dicts[i][getCode(data, i, row)];
+				else
+					v[columns[i].ordinal()] = getDouble(data, i, row);
+			}
+			return new ResultRecord(s, v);
+		}
+
+
+		/**
+		 * Get the dictionary code of the given string column at the given row
+		 * @param data	Block data
+		 * @param col	Column index within the block
+		 * @param row	Row index
+		 * @return Dictionary code
+		 */
+		private int getCode(ByteBuffer data, int col, int row) {
+			int pos = offsets[col] + codeWidths[col]*row;
+			switch(codeWidths[col]) {
+			case 1: return data.get(pos) & 0xff;
+			case 2: return data.getShort(pos) & 0xffff;
+			default: return data.getInt(pos);
+			}
+		}
+
+
+		/**
+		 * Get the value of the given numeric column at the given row
+		 * @param data	Block data
+		 * @param col	Column index within the block
+		 * @param row	Row index
+		 * @return Value
+		 */
+		private double getDouble(ByteBuffer data, int col, int row) {
+			return data.getDouble(offsets[col] + 8*row);
+		}
+
+
+		/**
+		 * Get the index of the given value in a dictionary
+		 * @param dict	Dictionary
+		 * @param value	Value
+		 * @return Index of the value, or -1 if it is not in the dictionary
+		 */
+		private static int indexOf(String[] dict, String value) {
+			for(int i = 0; i < dict.length; i++) {
+				if(dict[i].equals(value))
+					return i;
+			}
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Handler of the records found by a scan
+	 */
+	public interface RecordHandler {
+
+		/**
+		 * Handle the given record
+		 * @param r	Result record
+		 */
+		public void handle(ResultRecord r);
+	}
+
+
+	/**
+	 * Main
+	 *
+	 * Parameter list:
+	 * 0	Store file
+	 * 1..	Predicates of the form column=value, or column=min..max for numeric columns; or -compact to compact the store
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length == 0) {
+			System.out.println("Usage: ResultStore <StoreFile> (<Column>=<Value> | <Column>=<Min>..<Max> | -compact)*");
+			return;
+		}
+		ResultStore store = new ResultStore(new File(args[0]));
+		ResultQuery query = new ResultQuery();
+		boolean compact = false;
+		for(int i = 1; i < args.length; i++) {
+			if(args[i].equalsIgnoreCase("-compact")) compact = true;
+			else query.parse(args[i]);
+		}
+		if(compact) {
+			store.compact();
+			return;
+		}
+		String header = "";
+		for(Column c : Column.values())
+			header += c.getName() + ",";
+		System.out.println(header);
+		store.scan(query, new RecordHandler() {
+			public void handle(ResultRecord r) {
+				System.out.println(r);
+			}
+		});
+	}
+}
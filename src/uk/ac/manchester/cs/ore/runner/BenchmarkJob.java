@@ -0,0 +1,155 @@
+package uk.ac.manchester.cs.ore.runner;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+import uk.ac.manchester.cs.ore.wrapper.TimingSidecar;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * A single benchmark job, i.e., one (operation, ontology, reasoner, concept) tuple. Jobs are described by
+ * the same parameters, and in the same order, as those of the <b>start</b> script:
+ * <br/><br/>
+ * &lt;Operation&gt; &lt;Ontology&gt; &lt;Output&gt; &lt;Reasoner&gt; &lt;CSVOutput&gt; (&lt;ConceptURI&gt;)
+ * </p>
+ */
+public class BenchmarkJob {
+	private String op, ontFile, outputName, reasoner, csvOutput, conceptUri;
+
+	/**
+	 * Constructor
+	 * @param op	Operation name
+	 * @param ontFile	Ontology file path
+	 * @param outputName	Output folder name (within the reasoner folder)
+	 * @param reasoner	Reasoner name
+	 * @param csvOutput	Folder where the csv result file should be serialised to
+	 * @param conceptUri	Concept URI for satisfiability checking, concept list file path for batch satisfiability 
+	 * checking, null otherwise
+	 */
+	public BenchmarkJob(String op, String ontFile, String outputName, String reasoner, String csvOutput, String conceptUri) {
+		this.op = op;
+		this.ontFile = ontFile;
+		this.outputName = outputName;
+		this.reasoner = reasoner;
+		this.csvOutput = csvOutput;
+		this.conceptUri = conceptUri;
+	}
+
+
+	/**
+	 * Parse a job from a whitespace-separated line of parameters
+	 * @param line	Job description
+	 * @return Benchmark job, or null if the line does not describe a valid job
+	 */
+	public static BenchmarkJob parse(String line) {
+		List<String> tokens = new ArrayList<String>();
+		StringTokenizer st = new StringTokenizer(line.trim());
+		while(st.hasMoreTokens())
+			tokens.add(st.nextToken());
+		if(tokens.size() < 5)
+			return null;
+		return new BenchmarkJob(tokens.get(0), tokens.get(1), tokens.get(2), tokens.get(3), tokens.get(4),
+				(tokens.size() > 5 ? tokens.get(5) : null));
+	}
+
+
+	/**
+	 * Get the reasoner output file path, following the folder structure used by the <b>start</b> script. Batch
+	 * satisfiability results are written to the same file as individual satisfiability results
+	 * @param reasonersFolder	Folder containing all reasoner folders
+	 * @return Output file path
+	 */
+	public String getOutputFile(String reasonersFolder) {
+		if(!reasonersFolder.endsWith(File.separator)) reasonersFolder += File.separator;
+		String out = reasonersFolder + reasoner + File.separator + outputName + File.separator +
+				new File(ontFile).getName() + File.separator;
+		if(op.equalsIgnoreCase("classification"))
+			out += op + ".owl";
+		else if(op.equalsIgnoreCase("sat-batch"))
+			out += "sat.csv";
+		else
+			out += op + ".csv";
+		return out;
+	}
+
+
+	/**
+	 * Get the reasoner log file path, next to the given output file, as in the <b>start</b> script. The log of a
+	 * satisfiability check is named after the SHA-1 digest of its concept URI (as is its timings file) rather than
+	 * after the current time, which checks of different concepts that finish together would share
+	 * @param outFile	Output file path
+	 * @return Reasoner log file path
+	 */
+	public String getReasonerLogFile(String outFile) {
+		String log = outFile + "_log";
+		if(op.equalsIgnoreCase("sat") && conceptUri != null)
+			log += "_" + TimingSidecar.sha1(conceptUri);
+		return log + ".txt";
+	}
+
+
+	/**
+	 * Get operation name
+	 * @return Operation name
+	 */
+	public String getOperation() {
+		return op;
+	}
+
+
+	/**
+	 * Get ontology file path
+	 * @return Ontology file path
+	 */
+	public String getOntologyFile() {
+		return ontFile;
+	}
+
+
+	/**
+	 * Get output folder name
+	 * @return Output folder name (within the reasoner folder)
+	 */
+	public String getOutputName() {
+		return outputName;
+	}
+
+
+	/**
+	 * Get reasoner name
+	 * @return Reasoner name
+	 */
+	public String getReasoner() {
+		return reasoner;
+	}
+
+
+	/**
+	 * Get the folder where the csv result file should be serialised to
+	 * @return CSV output folder
+	 */
+	public String getCSVOutput() {
+		return csvOutput;
+	}
+
+
+	/**
+	 * Get concept URI
+	 * @return Concept URI, concept list file path for batch satisfiability checking, or null if not applicable
+	 */
+	public String getConceptUri() {
+		return conceptUri;
+	}
+
+
+	@Override
+	public String toString() {
+		return op + " " + ontFile + " " + outputName + " " + reasoner + " " + csvOutput + (conceptUri != null ? " " + conceptUri : "");
+	}
+}
@@ -0,0 +1,489 @@
+package uk.ac.manchester.cs.ore.runner;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.semanticweb.owlapi.apibinding.OWLManager;
+import org.semanticweb.owlapi.model.OWLOntology;
+import org.semanticweb.owlapi.model.OWLOntologyManager;
+
+import uk.ac.manchester.cs.ore.InputVerifier;
+import uk.ac.manchester.cs.ore.output.OutputHandler;
+import uk.ac.manchester.cs.ore.wrapper.ReasonerFactoryRegistry;
+import uk.ac.manchester.cs.ore.wrapper.SimpleReasonerWrapper;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * A long-lived benchmark runner that performs, within a single JVM, what the <b>start</b> script does with
+ * three: input verification, reasoner execution (via the {@link SimpleReasonerWrapper}) and output handling.
+ * The reasoner of each job is looked up by name in the {@link ReasonerFactoryRegistry}, so any OWL API reasoner
+ * on the classpath can be benchmarked by the same (warmed up) runner.
+ * Jobs are accepted over a loopback socket (one job per line, answered with a status line) and/or from a
+ * queue folder of <i>.job</i> files. Jobs are executed one at a time, each in its own thread and with its
+ * own CPU time, wall clock time and memory budget. A job that exceeds its budget is interrupted and
+ * recorded as a timeout (or memory exhaustion) in the same way as the <b>start</b> script does. Each job runs in 
+ * its own thread group, which the threads started by the reasoner inherit, and its CPU time is that of all the 
+ * threads of the group. The memory used by a job is the live heap it adds, i.e., the growth of the used heap 
+ * since the job started (measured after a garbage collection): the heap is only collected once its growth exceeds
+ * the budget, so that a reasoner that allocates a lot of short-lived objects is not deemed to exceed it.
+ * </p>
+ */
+public class BenchmarkRunner {
+	private static final long POLL_INTERVAL = 10, GRACE_PERIOD = 5000, QUEUE_INTERVAL = 500;
+	private String reasonersFolder;
+	private long cpuBudget, wallBudget, memoryBudget;
+	private ExecutorService jobExecutor;
+	private ThreadMXBean bean;
+	private OWLOntologyManager man;
+	private OWLOntology ont;
+	private String ontPath;
+	private long ontTimestamp;
+	private ServerSocket server;
+	private volatile boolean running, healthy;
+
+	/**
+	 * Constructor
+	 * @param reasonersFolder	Folder containing all reasoner folders
+	 * @param cpuBudget	CPU time budget per job (in seconds)
+	 * @param wallBudget	Wall clock time budget per job (in seconds), 0 for no limit
+	 * @param memoryBudget	Memory budget per job (in megabytes)
+	 */
+	public BenchmarkRunner(String reasonersFolder, long cpuBudget, long wallBudget, long memoryBudget) {
+		this.reasonersFolder = reasonersFolder;
+		this.cpuBudget = cpuBudget * 1000000000L;
+		this.wallBudget = wallBudget * 1000L;
+		this.memoryBudget = memoryBudget * 1024L * 1024L;
+		jobExecutor = Executors.newSingleThreadExecutor();
+		bean = ManagementFactory.getThreadMXBean();
+		man = OWLManager.createOWLOntologyManager();
+		running = true;
+		healthy = true;
+	}
+
+
+	/**
+	 * Submit a job for execution. Jobs are executed one at a time, in the order they are submitted
+	 * @param job	Benchmark job
+	 * @return Future holding the job's status, one of: ok | timeout | memory | error | invalid
+	 */
+	public Future<String> submit(final BenchmarkJob job) {
+		return jobExecutor.submit(new Callable<String>() {
+			public String call() {
+				return runJob(job);
+			}
+		});
+	}
+
+
+	/**
+	 * Verify the given job's parameters, execute it, and hand its output over to the {@link OutputHandler}
+	 * @param job	Benchmark job
+	 * @return Job status, one of: ok | timeout | memory | error | invalid
+	 */
+	public String runJob(BenchmarkJob job) {
+		System.out.println("Starting benchmark: " + job);
+		String out = job.getOutputFile(reasonersFolder);
+		if(!ReasonerFactoryRegistry.isAvailable(job.getReasoner())) {
+			System.err.println("\tUnknown reasoner '" + job.getReasoner() + "'. Available reasoners: " + ReasonerFactoryRegistry.getNames());
+			return "invalid";
+		}
+		OWLOntology o = getOntology(job.getOntologyFile());
+		if(o == null) {
+			System.err.println("! Unable to parse given file: " + job.getOntologyFile());
+			return "invalid";
+		}
+		InputVerifier iv = new InputVerifier(o);
+		String op = job.getOperation(), concept = job.getConceptUri();
+		if(!iv.isValidOperation(op) || !iv.isWritable(out) ||
+				(op.equalsIgnoreCase("sat") && (concept == null || !iv.isValidConceptName(concept))) ||
+				(op.equalsIgnoreCase("sat-batch") && (concept == null || !iv.isValidConceptList(concept))))
+			return "invalid";
+
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		PrintStream ps = new PrintStream(buffer, true);
+		SimpleReasonerWrapper r = new SimpleReasonerWrapper(o, ps, ReasonerFactoryRegistry.getFactory(job.getReasoner()),
+				ReasonerFactoryRegistry.getConfiguration(wallBudget, null));
+
+		long start = System.nanoTime();
+		String status = execute(r, job, out);
+		double duration = (System.nanoTime() - start)/1000000000.0;
+		ps.close();
+
+		String log = job.getReasonerLogFile(out);
+		try {
+			FileWriter writer = new FileWriter(log);
+			writer.write(buffer.toString() + "\n\tDuration: " + duration + "\n");
+			writer.close();
+			String csv = job.getCSVOutput();
+			if(!csv.endsWith(File.separator)) csv += File.separator;
+			OutputHandler.handle(log, job.getOperation(), job.getOntologyFile(), out, csv + job.getReasoner(), job.getConceptUri());
+		} catch (IOException e) {
+			e.printStackTrace();
+			status = "error";
+		}
+		System.out.println("   Finished (" + status + "). Total wall clock duration: " + duration + " second(s)");
+		return status;
+	}
+
+
+	/**
+	 * Execute a job in a dedicated thread, while enforcing the CPU time, wall clock time and memory budgets
+	 * @param r	Reasoner wrapper
+	 * @param job	Benchmark job
+	 * @param out	Output file path
+	 * @return Job status, one of: ok | timeout | memory | error
+	 */
+	private String execute(final SimpleReasonerWrapper r, final BenchmarkJob job, final String out) {
+		final Throwable[] error = new Throwable[1];
+		ThreadGroup group = new ThreadGroup("benchmark-job");
+		group.setDaemon(true);
+		Thread worker = new Thread(group, new Runnable() {
+			public void run() {
+				try {
+					r.execute(job.getOperation(), out, job.getConceptUri());
+				} catch (Throwable t) {
+					error[0] = t;
+				}
+			}
+		}, "benchmark-job");
+		worker.setDaemon(true);
+
+		System.gc();
+		long baseline = getUsedMemory(), start = System.currentTimeMillis();
+		String status = "ok";
+		Map<Long,Long> cpuTimes = new HashMap<Long,Long>();
+		worker.start();
+		try {
+			while(worker.isAlive()) {
+				worker.join(POLL_INTERVAL);
+				if(getCpuTime(group, cpuTimes) > cpuBudget || (wallBudget > 0 && System.currentTimeMillis() - start > wallBudget))
+					status = "timeout";
+				else if(getUsedMemory() - baseline > memoryBudget && getLiveMemory() - baseline > memoryBudget)
+					status = "memory";
+				if(!status.equals("ok")) {
+					r.interrupt();
+					worker.join(GRACE_PERIOD);
+					if(worker.isAlive()) {
+						System.err.println("! Unable to reclaim job thread after interrupting the reasoner; runner must be restarted");
+						healthy = false;
+					}
+					break;
+				}
+			}
+		} catch (InterruptedException e) {
+			r.interrupt();
+			status = "error";
+		}
+		if(!worker.isAlive())
+			r.dispose();
+
+		if(status.equals("ok") && error[0] != null)
+			status = (error[0] instanceof OutOfMemoryError ? "memory" : "error");
+		if(status.equals("timeout"))
+			serializeError(out, "timeout");
+		else if(status.equals("memory"))
+			serializeError(out, "Memory budget of " + (memoryBudget/1024/1024) + "MB exceeded");
+		else if(status.equals("error")) {
+			StringWriter sw = new StringWriter();
+			if(error[0] != null) error[0].printStackTrace(new PrintWriter(sw));
+			serializeError(out, sw.toString());
+		}
+		return status;
+	}
+
+
+	/**
+	 * Get the ontology in the given file. The most recently loaded ontology is kept, so that consecutive jobs
+	 * over the same (unmodified) ontology file do not parse it again
+	 * @param ontFile	Ontology file path
+	 * @return OWL ontology, or null if it cannot be parsed
+	 */
+	private OWLOntology getOntology(String ontFile) {
+		File f = new File(ontFile).getAbsoluteFile();
+		if(ont != null && f.getPath().equals(ontPath) && f.lastModified() == ontTimestamp)
+			return ont;
+		if(ont != null) {
+			man.removeOntology(ont);
+			ont = null; ontPath = null;
+		}
+		try {
+			ont = man.loadOntologyFromOntologyDocument(f);
+			ontPath = f.getPath();
+			ontTimestamp = f.lastModified();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return ont;
+	}
+
+
+	/**
+	 * Listen for jobs on the given (loopback) port. Each line received is a job, which is answered with
+	 * a line containing the job status once it finishes. The line <i>shutdown</i> stops the runner
+	 * @param port	Port number
+	 * @throws IOException
+	 */
+	public void listen(int port) throws IOException {
+		server = new ServerSocket(port, 50, InetAddress.getByName(null));
+		System.out.println("Listening for jobs on port " + server.getLocalPort());
+		while(running) {
+			final Socket socket;
+			try {
+				socket = server.accept();
+			} catch (IOException e) {
+				if(running) throw e;
+				break;
+			}
+			Thread handler = new Thread(new Runnable() {
+				public void run() {
+					handleConnection(socket);
+				}
+			}, "benchmark-connection");
+			handler.setDaemon(true);
+			handler.start();
+		}
+	}
+
+
+	/**
+	 * Handle a connection from a job submitter
+	 * @param socket	Socket
+	 */
+	private void handleConnection(Socket socket) {
+		try {
+			BufferedReader br = new BufferedReader(new InputStreamReader(socket.getInputStream()));
+			PrintWriter pw = new PrintWriter(socket.getOutputStream(), true);
+			String line;
+			while(running && (line = br.readLine()) != null) {
+				line = line.trim();
+				if(line.isEmpty()) continue;
+				if(line.equalsIgnoreCase("shutdown")) {
+					pw.println("bye");
+					shutdown();
+					break;
+				}
+				pw.println(process(line));
+			}
+			socket.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Watch the given folder for job files (with the extension <i>.job</i>), each containing one job per line.
+	 * A job file is renamed to <i>.running</i> while being processed, and to <i>.done</i> afterwards. To avoid
+	 * picking up partially written files, these should be written under a different name and then moved
+	 * @param queue	Job queue folder
+	 */
+	public void watchQueue(File queue) {
+		queue.mkdirs();
+		System.out.println("Watching for jobs in " + queue.getAbsolutePath());
+		while(running) {
+			File[] jobFiles = queue.listFiles();
+			List<File> pending = new ArrayList<File>();
+			if(jobFiles != null) {
+				Arrays.sort(jobFiles);
+				for(File f : jobFiles)
+					if(f.getName().endsWith(".job")) pending.add(f);
+			}
+			for(File f : pending) {
+				if(!running) break;
+				String name = f.getAbsolutePath();
+				File runningFile = new File(name.substring(0, name.length()-4) + ".running");
+				if(!f.renameTo(runningFile)) continue;
+				try {
+					BufferedReader br = new BufferedReader(new FileReader(runningFile));
+					String line;
+					while(running && (line = br.readLine()) != null) {
+						if(!line.trim().isEmpty()) process(line);
+					}
+					br.close();
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+				runningFile.renameTo(new File(name.substring(0, name.length()-4) + ".done"));
+			}
+			try {
+				Thread.sleep(QUEUE_INTERVAL);
+			} catch (InterruptedException e) {
+				break;
+			}
+		}
+	}
+
+
+	/**
+	 * Parse, submit and wait for the job in the given line
+	 * @param line	Job description
+	 * @return Status line
+	 */
+	private String process(String line) {
+		BenchmarkJob job = BenchmarkJob.parse(line);
+		if(job == null)
+			return "! Invalid job: " + line;
+		String status;
+		try {
+			status = submit(job).get();
+		} catch (InterruptedException e) {
+			status = "error";
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+			status = "error";
+		}
+		if(!healthy) shutdown();
+		return "done " + status;
+	}
+
+
+	/**
+	 * Stop accepting jobs, and shut down once the current job (if any) completes
+	 */
+	public void shutdown() {
+		running = false;
+		jobExecutor.shutdown();
+		if(server != null) {
+			try { server.close(); }
+			catch (IOException e) { e.printStackTrace(); }
+		}
+	}
+
+
+	/**
+	 * Check whether the runner is still able to run jobs, i.e., no job thread was left running after its
+	 * budget was exceeded
+	 * @return true if the runner is healthy, false otherwise
+	 */
+	public boolean isHealthy() {
+		return healthy;
+	}
+
+
+	/**
+	 * Get the CPU time used by the threads of the given job thread group so far, including those threads that
+	 * have finished since they were last seen
+	 * @param group	Job thread group
+	 * @param cpuTimes	Map of thread identifiers to the CPU time they were last seen to have used, which is updated
+	 * @return CPU time (in nanoseconds)
+	 */
+	private long getCpuTime(ThreadGroup group, Map<Long,Long> cpuTimes) {
+		Thread[] threads = new Thread[group.activeCount() * 2 + 1];
+		int n = group.enumerate(threads, true);
+		for(int i = 0; i < n; i++) {
+			long t = bean.getThreadCpuTime(threads[i].getId());
+			if(t >= 0) cpuTimes.put(threads[i].getId(), t);
+		}
+		long total = 0;
+		for(long t : cpuTimes.values())
+			total += t;
+		return total;
+	}
+
+
+	/**
+	 * Get the amount of heap memory in use after a garbage collection, i.e., the live heap
+	 * @return Live heap memory (in bytes)
+	 */
+	private long getLiveMemory() {
+		System.gc();
+		return getUsedMemory();
+	}
+
+
+	/**
+	 * Get the amount of heap memory in use
+	 * @return Used heap memory (in bytes)
+	 */
+	private long getUsedMemory() {
+		Runtime rt = Runtime.getRuntime();
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+
+	/**
+	 * Write the given error to the error file of the specified output file, where the {@link OutputHandler}
+	 * expects to find it
+	 * @param out	Output file path
+	 * @param error	Error message
+	 */
+	private void serializeError(String out, String error) {
+		try {
+			FileWriter writer = new FileWriter(out + "_err");
+			writer.write(error + "\n");
+			writer.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Main
+	 *
+	 * Parameter list (index positions):
+	 * 0	Reasoners folder (containing all reasoner folders)
+	 * 1	Port number to listen on (loopback only), or 0 to only watch the job queue
+	 * 2	[optional] Job queue folder
+	 * 3	[optional] CPU time budget per job, in seconds (default: 350)
+	 * 4	[optional] Memory budget per job, in megabytes (default: 10240)
+	 * 5	[optional] Wall clock time budget per job, in seconds (default: 0, i.e., no limit)
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.err.println("\tEmpty or incomplete argument list. Arguments must be: <ReasonersFolder> <Port> (<QueueFolder> <CPUBudget> <MemoryBudget> <WallBudget>)");
+			System.exit(0);
+		}
+		String reasonersFolder = args[0];
+		int port = Integer.parseInt(args[1]);
+		long cpu = (args.length > 3 ? Long.parseLong(args[3]) : 350);
+		long memory = (args.length > 4 ? Long.parseLong(args[4]) : 10240);
+		long wall = (args.length > 5 ? Long.parseLong(args[5]) : 0);
+
+		final BenchmarkRunner runner = new BenchmarkRunner(reasonersFolder, cpu, wall, memory);
+		final File queue = (args.length > 2 && !args[2].equals("none") ? new File(args[2]) : null);
+		if(port > 0) {
+			if(queue != null) {
+				Thread watcher = new Thread(new Runnable() {
+					public void run() {
+						runner.watchQueue(queue);
+					}
+				}, "benchmark-queue");
+				watcher.setDaemon(true);
+				watcher.start();
+			}
+			runner.listen(port);
+		}
+		else if(queue != null)
+			runner.watchQueue(queue);
+		System.exit(runner.isHealthy() ? 0 : 1);
+	}
+}
@@ -0,0 +1,469 @@
+package uk.ac.manchester.cs.ore.runner;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import uk.ac.manchester.cs.ore.output.OutputHandler;
+import uk.ac.manchester.cs.ore.results.Column;
+import uk.ac.manchester.cs.ore.results.ResultQuery;
+import uk.ac.manchester.cs.ore.results.ResultRecord;
+import uk.ac.manchester.cs.ore.results.ResultStore;
+import uk.ac.manchester.cs.ore.wrapper.TimingSidecar;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Scheduler of the full matrix of benchmark jobs of one operation, i.e., every given reasoner on every ontology
+ * of the given profiles (and, for satisfiability checking, every concept in the ontology's <i>_sat.txt</i> sample),
+ * following the folder structure of the <b>startReasonerTest</b> script. Jobs are run in parallel slots: each slot
+ * runs one job at a time, pinned to its own processor (via <i>taskset</i>, where available), so that concurrent jobs
+ * do not compete for the same core. If there are fewer slots than processors, the first processor is reserved for
+ * the scheduler itself, i.e., the JVM whose threads sample and police the running reasoners, which is pinned to it,
+ * so that this work does not steal time from the reasoners. Jobs that share an output file, i.e., the satisfiability checks of the concepts
+ * of one ontology by one reasoner, are run one after the other.
+ * <br/><br/>
+ * Each job goes through the same steps as in the <b>start</b> script (input verification, reasoner execution and
+ * output handling), except that the reasoner's <i>execReasoner</i> script is run by a {@link ReasonerProcessLauncher},
+ * so that the wall clock time, CPU times, peak memory and context switches of the reasoner's process tree are 
+ * measured and stored in the results record along with the times reported by the reasoner. The launcher also
+ * enforces each job's wall clock and CPU time deadlines and memory ceiling, killing the reasoner's whole process
+ * tree as soon as one is exceeded (so that a stuck reasoner frees its processor right away), and the reason the
+ * reasoner terminated (ok, timeout, oom, crash or exit) is recorded as the status of its results.
+ * <br/><br/>
+ * Jobs whose results are already in the results store of their reasoner (see {@link ResultStore}) are skipped,
+ * so that an interrupted run can be resumed by starting the scheduler again with the same parameters. The output
+ * of each job is written to a log file in the <i>log</i> folder of its reasoner's csv output folder. A job only 
+ * succeeds if its reasoner exits normally and writes to its (non-empty) output file.
+ * </p>
+ */
+public class BenchmarkScheduler {
+	private final String baseFolder;
+	private final int slots;
+	private final long memoryBudget, cpuBudget, wallBudget;
+	private final boolean pinned;
+	private final Map<File,Set<String>> completed = new HashMap<File,Set<String>>();
+
+	/**
+	 * Constructor
+	 * @param baseFolder	Base folder, containing the ontologies, reasoners, runner and csv folders
+	 * @param slots	Number of jobs run in parallel
+	 * @param memoryBudget	Resident memory ceiling per job (in megabytes), or 0 for none
+	 * @param cpuBudget	CPU time deadline per job (in seconds), or 0 for none
+	 * @param wallBudget	Wall clock deadline per job (in seconds), or 0 for none
+	 */
+	public BenchmarkScheduler(String baseFolder, int slots, long memoryBudget, long cpuBudget, long wallBudget) {
+		if(!baseFolder.endsWith(File.separator)) baseFolder += File.separator;
+		this.baseFolder = baseFolder;
+		this.slots = Math.max(1, slots);
+		this.memoryBudget = memoryBudget;
+		this.cpuBudget = cpuBudget;
+		this.wallBudget = wallBudget;
+		this.pinned = (ReasonerProcessLauncher.getTaskset() != null);
+	}
+
+
+	/**
+	 * Build the matrix of jobs of the given operation
+	 * @param op	Operation name
+	 * @param outputName	Output folder name (within the reasoner folder)
+	 * @param reasoners	List of reasoner names
+	 * @param syntax	Ontology syntax folder, e.g., functional
+	 * @param profiles	List of profiles, e.g., dl, el or rl
+	 * @return List of jobs
+	 * @throws IOException
+	 */
+	public List<BenchmarkJob> getJobs(String op, String outputName, List<String> reasoners, String syntax, List<String> profiles)
+			throws IOException {
+		List<BenchmarkJob> jobs = new ArrayList<BenchmarkJob>();
+		String ontBase = baseFolder + "ontologies" + File.separator;
+		for(String profile : profiles) {
+			File[] files = new File(ontBase + syntax + File.separator + profile).listFiles();
+			if(files == null) {
+				System.err.println("! No ontologies found for profile " + profile);
+				continue;
+			}
+			Arrays.sort(files);
+			String csv = baseFolder + "csv" + File.separator + "live" + File.separator + profile;
+			for(File f : files) {
+				if(!f.isFile()) continue;
+				String sample = ontBase + "sat" + File.separator + profile + File.separator + f.getName() + "_sat.txt";
+				for(String reasoner : reasoners) {
+					if(op.equalsIgnoreCase("sat")) {
+						for(String concept : readLines(sample))
+							jobs.add(new BenchmarkJob(op, f.getAbsolutePath(), outputName, reasoner, csv, concept));
+					}
+					else if(op.equalsIgnoreCase("sat-batch"))
+						jobs.add(new BenchmarkJob(op, f.getAbsolutePath(), outputName, reasoner, csv, sample));
+					else
+						jobs.add(new BenchmarkJob(op, f.getAbsolutePath(), outputName, reasoner, csv, null));
+				}
+			}
+		}
+		return jobs;
+	}
+
+
+	/**
+	 * Run the given jobs, skipping those that already have results
+	 * @param jobs	List of jobs
+	 * @return Number of jobs that did not complete successfully
+	 * @throws InterruptedException
+	 */
+	public int run(List<BenchmarkJob> jobs) throws InterruptedException {
+		final JobQueue queue = new JobQueue();
+		for(BenchmarkJob job : jobs) {
+			if(!isDone(job)) queue.add(job);
+		}
+		final int total = queue.size();
+		int processors = Runtime.getRuntime().availableProcessors();
+		int reserved = (pinned && slots < processors && ReasonerProcessLauncher.pinCurrentProcess(0) ? 1 : 0);
+		System.out.println("Scheduling " + total + " job(s) in " + slots + " slot(s); " + (jobs.size() - total) +
+				" job(s) already have results" + (!pinned ? " (taskset not found, jobs are not pinned)" : 
+				reserved > 0 ? " (scheduler pinned to cpu 0)" : ""));
+		final AtomicInteger started = new AtomicInteger(), failed = new AtomicInteger();
+		Thread[] workers = new Thread[slots];
+		for(int i = 0; i < slots; i++) {
+			final int cpu = reserved + i % (processors - reserved);
+			workers[i] = new Thread(new Runnable() {
+				public void run() {
+					BenchmarkJob job;
+					try {
+						while((job = queue.take()) != null) {
+							int n = started.incrementAndGet();
+							long start = System.currentTimeMillis();
+							String status;
+							try {
+								status = runJob(job, cpu);
+							} finally {
+								queue.done(job);
+							}
+							if(!status.equals("ok")) failed.incrementAndGet();
+							System.out.println("[" + n + "/" + total + "] " + status + " (" + (System.currentTimeMillis()-start)/1000.0 +
+									" s, cpu " + cpu + "): " + job);
+						}
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				}
+			}, "benchmark-slot-" + i);
+			workers[i].start();
+		}
+		for(Thread t : workers)
+			t.join();
+		return failed.get();
+	}
+
+
+	/**
+	 * Run the given job, pinned to the given processor: verify its parameters, run the reasoner, write its log
+	 * (with the wall clock duration) where the <b>start</b> script would, and hand it over to the {@link OutputHandler}
+	 * along with the resources used by the reasoner
+	 * @param job	Benchmark job
+	 * @param cpu	Processor index
+	 * @return Job status: the reason the reasoner terminated (ok | timeout | oom | crash, or exit followed by the exit
+	 * code), no-output if the reasoner exited normally without writing to its output file, invalid if the job's 
+	 * parameters are invalid, or error if the job could not be run
+	 */
+	protected String runJob(BenchmarkJob job, int cpu) {
+		String out = job.getOutputFile(baseFolder + "reasoners");
+		List<String> cmd = new ArrayList<String>();
+		cmd.add("./execReasoner");
+		cmd.add(job.getOperation()); cmd.add(job.getOntologyFile()); cmd.add(out);
+		if(job.getConceptUri() != null) cmd.add(job.getConceptUri());
+
+		File log = getLogFile(job);
+		try {
+			log.getParentFile().mkdirs();
+			OutputStream jobLog = new FileOutputStream(log);
+			try {
+				if(!verify(job, out, jobLog))
+					return "invalid";
+				ByteArrayOutputStream output = new ByteArrayOutputStream();
+				File outFile = new File(out);
+				long length = outFile.length(), modified = outFile.lastModified();
+				ProcessUsage usage = new ReasonerProcessLauncher(cpu, memoryBudget, cpuBudget, wallBudget).run(cmd,
+						new File(baseFolder + "reasoners", job.getReasoner()), output);
+				output.writeTo(jobLog);
+				jobLog.write(("\tResources: " + usage + "\n").getBytes());
+
+				String reasonerLog = job.getReasonerLogFile(out);
+				OutputStream logOut = new FileOutputStream(reasonerLog);
+				try {
+					output.writeTo(logOut);
+					logOut.write(("\n\tDuration: " + usage.getWallTime()/1000 + "\n").getBytes());
+				} finally {
+					logOut.close();
+				}
+				OutputHandler.handle(reasonerLog, job.getOperation(), job.getOntologyFile(), out,
+						job.getCSVOutput() + File.separator + job.getReasoner(), job.getConceptUri(), usage.getTermination(), 
+						usage.getValues());
+				String status = usage.getTermination();
+				if(status.equals(ReasonerProcessLauncher.OK) && 
+						!(outFile.length() > 0 && (outFile.length() != length || outFile.lastModified() != modified)))
+					return "no-output";
+				return (status.equals(ReasonerProcessLauncher.EXIT) ? status + " " + usage.getExitCode() : status);
+			} finally {
+				jobLog.close();
+			}
+		} catch (IOException e) {
+			System.err.println("! Unable to run job " + job + ": " + e.getMessage());
+			return "error";
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return "interrupted";
+		}
+	}
+
+
+	/**
+	 * Verify the parameters of the given job with the <b>InputVerifier</b>, as the <b>start</b> script does
+	 * @param job	Benchmark job
+	 * @param out	Reasoner output file path
+	 * @param log	Stream to which the output of the verifier is copied
+	 * @return true if the parameters are valid, false otherwise
+	 * @throws IOException
+	 * @throws InterruptedException
+	 */
+	private boolean verify(BenchmarkJob job, String out, OutputStream log) throws IOException, InterruptedException {
+		String runner = baseFolder + "runner" + File.separator;
+		List<String> cmd = new ArrayList<String>();
+		cmd.add("java"); cmd.add("-Djava.library.path=" + runner + "lib");
+		cmd.add("-jar"); cmd.add(runner + "InputVerifier.jar");
+		cmd.add(job.getOperation()); cmd.add(job.getOntologyFile()); cmd.add(out);
+		if(job.getConceptUri() != null) cmd.add(job.getConceptUri());
+		Process p = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+		ByteArrayOutputStream output = new ByteArrayOutputStream();
+		copy(p.getInputStream(), output);
+		p.waitFor();
+		output.writeTo(log);
+		for(String line : output.toString().split("\n")) {
+			if(line.trim().equals("Valid parameters"))
+				return true;
+		}
+		return false;
+	}
+
+
+	/**
+	 * Check whether the given job already has results, i.e., whether the results store of its reasoner has a
+	 * record for its ontology (and concept, or every concept in its concept list for batch satisfiability)
+	 * @param job	Benchmark job
+	 * @return true if the job already has results, false otherwise
+	 */
+	public boolean isDone(BenchmarkJob job) {
+		String op = job.getOperation().equalsIgnoreCase("sat-batch") ? "sat" : job.getOperation();
+		Set<String> done = getCompleted(new File(job.getCSVOutput() + File.separator + job.getReasoner(), "_" + op + ResultStore.EXTENSION),
+				job.getReasoner(), op);
+		String ont = new File(job.getOntologyFile()).getName();
+		if(!job.getOperation().equalsIgnoreCase("sat-batch"))
+			return done.contains(ont + " " + (job.getConceptUri() != null ? job.getConceptUri() : ""));
+		try {
+			List<String> concepts = readLines(job.getConceptUri());
+			for(String concept : concepts) {
+				if(!done.contains(ont + " " + concept))
+					return false;
+			}
+			return !concepts.isEmpty();
+		} catch (IOException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Get the (ontology, concept) pairs that have results in the given store for the given reasoner and operation
+	 * @param store	Results store file
+	 * @param reasoner	Reasoner name
+	 * @param op	Operation name
+	 * @return Set of ontology and concept pairs, separated by a space
+	 */
+	private Set<String> getCompleted(File store, String reasoner, String op) {
+		Set<String> done = completed.get(store);
+		if(done == null) {
+			final Set<String> keys = new HashSet<String>();
+			try {
+				new ResultStore(store).scan(new ResultQuery().equalTo(Column.REASONER, reasoner).equalTo(Column.OPERATION, op),
+						new ResultStore.RecordHandler() {
+					public void handle(ResultRecord r) {
+						keys.add(r.getOntology() + " " + r.getConcept());
+					}
+				});
+			} catch (IOException e) {
+				System.err.println("! Unable to read results store " + store + ": " + e.getMessage());
+			}
+			done = keys;
+			completed.put(store, done);
+		}
+		return done;
+	}
+
+
+	/**
+	 * Get the log file of the given job
+	 * @param job	Benchmark job
+	 * @return Log file
+	 */
+	private File getLogFile(BenchmarkJob job) {
+		String name = new File(job.getOntologyFile()).getName() + "_" + job.getOperation();
+		if(job.getOperation().equalsIgnoreCase("sat"))
+			name += "_" + TimingSidecar.sha1(job.getConceptUri());
+		return new File(job.getCSVOutput() + File.separator + job.getReasoner() + File.separator + "log", name + ".txt");
+	}
+
+
+	/**
+	 * Queue of the jobs to run. Jobs that share an output file, i.e., the satisfiability checks of different concepts
+	 * by the same reasoner on the same ontology, which all append to its <i>sat.csv</i>, are never run at the same 
+	 * time, so that neither their output nor the check of whether each of them wrote to it is mixed up with that of 
+	 * another job; other jobs are taken in order as slots become free
+	 */
+	private class JobQueue {
+		private final List<BenchmarkJob> pending = new LinkedList<BenchmarkJob>();
+		private final Set<String> running = new HashSet<String>();
+		
+		/**
+		 * Add a job to the queue
+		 * @param job	Benchmark job
+		 */
+		public synchronized void add(BenchmarkJob job) {
+			pending.add(job);
+		}
+		
+		
+		/**
+		 * Get the number of jobs in the queue
+		 * @return Number of jobs
+		 */
+		public synchronized int size() {
+			return pending.size();
+		}
+		
+		
+		/**
+		 * Take the first job whose output file is not being written by a running job, waiting for one to finish if
+		 * there is none
+		 * @return Benchmark job, or null if the queue is empty
+		 * @throws InterruptedException
+		 */
+		public synchronized BenchmarkJob take() throws InterruptedException {
+			while(!pending.isEmpty()) {
+				for(Iterator<BenchmarkJob> it = pending.iterator(); it.hasNext();) {
+					BenchmarkJob job = it.next();
+					if(running.add(getOutput(job))) {
+						it.remove();
+						return job;
+					}
+				}
+				wait();
+			}
+			return null;
+		}
+		
+		
+		/**
+		 * Mark a job taken from the queue as finished, so that jobs sharing its output file can be taken
+		 * @param job	Benchmark job
+		 */
+		public synchronized void done(BenchmarkJob job) {
+			running.remove(getOutput(job));
+			notifyAll();
+		}
+		
+		
+		/**
+		 * Get the output file of the given job
+		 * @param job	Benchmark job
+		 * @return Output file path
+		 */
+		private String getOutput(BenchmarkJob job) {
+			return job.getOutputFile(baseFolder + "reasoners");
+		}
+	}
+
+
+	/**
+	 * Read the non-empty lines of the given file
+	 * @param path	File path
+	 * @return List of trimmed lines, or an empty list if the file does not exist
+	 * @throws IOException
+	 */
+	private static List<String> readLines(String path) throws IOException {
+		List<String> lines = new ArrayList<String>();
+		if(!new File(path).exists()) return lines;
+		BufferedReader br = new BufferedReader(new FileReader(path));
+		String line;
+		while((line = br.readLine()) != null) {
+			line = line.trim();
+			if(!line.isEmpty()) lines.add(line);
+		}
+		br.close();
+		return lines;
+	}
+
+
+	/**
+	 * Copy the given input stream to the given output stream, until the end of the input stream
+	 * @param in	Input stream
+	 * @param out	Output stream
+	 * @throws IOException
+	 */
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buf = new byte[8192];
+		int n;
+		while((n = in.read(buf)) >= 0)
+			out.write(buf, 0, n);
+	}
+
+
+	/**
+	 * Main
+	 *
+	 * Parameter list (index positions):
+	 * 0	Base folder
+	 * 1	Operation name
+	 * 2	Output folder name (within the reasoner folder)
+	 * 3	Reasoner name(s), comma separated
+	 * 4	Syntax, i.e., functional or owlxml
+	 * 5..	Profile(s), i.e., dl, el or rl
+	 *
+	 * The number of parallel slots is given by the system property <i>ore.slots</i> (by default, the number of
+	 * available processors but one, which is left to the scheduler), the memory ceiling per job (in MB) by <i>ore.job.mb</i> (by default, 10240), and the CPU
+	 * time and wall clock deadlines per job (in seconds) by <i>ore.job.cpu</i> and <i>ore.job.wall</i> (by default,
+	 * 350 and 600)
+	 * @throws InterruptedException
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws InterruptedException, IOException {
+		if(args.length < 6) {
+			System.err.println("\tEmpty or incomplete argument list. Arguments must be: <BaseFolder> <Operation> <Output> <Reasoner(s)> <Syntax> <Profiles>");
+			System.exit(0);
+		}
+		BenchmarkScheduler scheduler = new BenchmarkScheduler(args[0],
+				Integer.getInteger("ore.slots", Math.max(1, Runtime.getRuntime().availableProcessors() - 1)), Long.getLong("ore.job.mb", 10240),
+				Long.getLong("ore.job.cpu", 350), Long.getLong("ore.job.wall", 600));
+		List<BenchmarkJob> jobs = scheduler.getJobs(args[1], args[2], Arrays.asList(args[3].split(",")), args[4],
+				Arrays.asList(args).subList(5, args.length));
+		int failed = scheduler.run(jobs);
+		System.out.println("Done" + (failed > 0 ? " (" + failed + " job(s) failed)" : ""));
+		System.exit(failed > 0 ? 1 : 0);
+	}
+}
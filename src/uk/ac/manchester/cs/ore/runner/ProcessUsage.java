@@ -0,0 +1,142 @@
+package uk.ac.manchester.cs.ore.runner;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import uk.ac.manchester.cs.ore.results.Column;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Resources used by the process tree of an external reasoner, as measured by the {@link ReasonerProcessLauncher},
+ * and the reason the reasoner terminated. Values that could not be measured (e.g., where <i>/proc</i> is not 
+ * available) are NaN.
+ * </p>
+ */
+public class ProcessUsage {
+	private final String termination;
+	private final int exitCode;
+	private final double wallTime, userTime, sysTime, peakRss, voluntarySwitches, involuntarySwitches;
+
+	/**
+	 * Constructor
+	 * @param termination	Termination reason, one of: ok | timeout | oom | crash | exit
+	 * @param exitCode	Exit code of the reasoner process
+	 * @param wallTime	Wall clock time (in milliseconds)
+	 * @param userTime	User CPU time (in milliseconds)
+	 * @param sysTime	System CPU time (in milliseconds)
+	 * @param peakRss	Peak resident set size (in kilobytes)
+	 * @param voluntarySwitches	Number of voluntary context switches
+	 * @param involuntarySwitches	Number of involuntary context switches
+	 */
+	public ProcessUsage(String termination, int exitCode, double wallTime, double userTime, double sysTime, double peakRss,
+			double voluntarySwitches, double involuntarySwitches) {
+		this.termination = termination;
+		this.exitCode = exitCode;
+		this.wallTime = wallTime;
+		this.userTime = userTime;
+		this.sysTime = sysTime;
+		this.peakRss = peakRss;
+		this.voluntarySwitches = voluntarySwitches;
+		this.involuntarySwitches = involuntarySwitches;
+	}
+
+
+	/**
+	 * Get the reason the reasoner terminated
+	 * @return Termination reason, one of: ok | timeout | oom | crash | exit
+	 */
+	public String getTermination() {
+		return termination;
+	}
+
+
+	/**
+	 * Get the exit code of the reasoner process, which is that of the kill signal if the launcher killed it
+	 * @return Exit code
+	 */
+	public int getExitCode() {
+		return exitCode;
+	}
+
+
+	/**
+	 * Get wall clock time
+	 * @return Wall clock time (in milliseconds)
+	 */
+	public double getWallTime() {
+		return wallTime;
+	}
+
+
+	/**
+	 * Get user CPU time
+	 * @return User CPU time (in milliseconds)
+	 */
+	public double getUserTime() {
+		return userTime;
+	}
+
+
+	/**
+	 * Get system CPU time
+	 * @return System CPU time (in milliseconds)
+	 */
+	public double getSysTime() {
+		return sysTime;
+	}
+
+
+	/**
+	 * Get peak resident set size
+	 * @return Peak resident set size (in kilobytes)
+	 */
+	public double getPeakRss() {
+		return peakRss;
+	}
+
+
+	/**
+	 * Get the number of voluntary context switches, e.g., waiting for I/O
+	 * @return Number of voluntary context switches
+	 */
+	public double getVoluntarySwitches() {
+		return voluntarySwitches;
+	}
+
+
+	/**
+	 * Get the number of involuntary context switches, i.e., preemptions
+	 * @return Number of involuntary context switches
+	 */
+	public double getInvoluntarySwitches() {
+		return involuntarySwitches;
+	}
+
+
+	/**
+	 * Get the measured values as the values of results store columns
+	 * @return Map of numeric columns to their values
+	 */
+	public Map<Column,Double> getValues() {
+		Map<Column,Double> values = new EnumMap<Column,Double>(Column.class);
+		values.put(Column.EXIT_CODE, (double)exitCode);
+		values.put(Column.WALL_TIME, wallTime);
+		values.put(Column.USER_TIME, userTime);
+		values.put(Column.SYS_TIME, sysTime);
+		values.put(Column.PEAK_RSS, peakRss);
+		values.put(Column.VOLUNTARY_SWITCHES, voluntarySwitches);
+		values.put(Column.INVOLUNTARY_SWITCHES, involuntarySwitches);
+		return values;
+	}
+
+
+	@Override
+	public String toString() {
+		return termination + " (exit code " + exitCode + "), wall " + wallTime + " ms, user " + userTime + " ms, sys " + sysTime + 
+				" ms, peak RSS " + peakRss + " KB, " + (long)voluntarySwitches + " voluntary and " + (long)involuntarySwitches + " involuntary context switches";
+	}
+}
@@ -0,0 +1,628 @@
+package uk.ac.manchester.cs.ore.runner;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Launcher of external reasoners (i.e., of their <i>execReasoner</i> scripts) that measures the resources used by
+ * the reasoner's whole process tree, whether or not the reasoner reports its own times. While the reasoner runs,
+ * <i>/proc/pid</i> of the reasoner process and of each of its descendants is sampled every few milliseconds (given
+ * by the system property <i>ore.sample.ms</i>, 50 by default): user and system CPU time from <i>stat</i>, and the
+ * resident set size from <i>status</i>. The peak resident set size is the largest of the total over the tree at
+ * any sample and the high-water mark of any single process. Every {@link #SCAN_PERIOD} milliseconds, <i>/proc</i> 
+ * is scanned for new descendants, and the context switches of every thread of the tree are read from the 
+ * <i>status</i> of each task (as the <i>status</i> of a process only counts those of its main thread); they are 
+ * read once more when the tree is stopped to be killed. Reading every task is by far the costliest part of a 
+ * sample, hence its coarser period, at the price of missing up to one period's worth of switches of each thread 
+ * that exits before the reasoner does.
+ * <br/><br/>
+ * The reasoner is run by a <i>bash</i> wrapper that, once the reasoner exits, saves its own <i>stat</i>, so that
+ * the final CPU times are those accumulated by the kernel for all the descendants the wrapper waited for, rather
+ * than those of the last sample. CPU times have the resolution of the kernel's clock ticks (usually 10 ms), and
+ * wall clock time is measured with <b>System.nanoTime</b>. Where <i>/proc</i> is not available, only the wall
+ * clock time is measured.
+ * <br/><br/>
+ * The launcher also enforces a wall clock deadline, a CPU time deadline and a memory ceiling on the process tree,
+ * checked at every sample: the memory ceiling applies to the resident memory of the tree, rather than to virtual 
+ * memory as <i>ulimit -v</i> does (which JVMs reserve far beyond their use). The reasoner is started in its own
+ * session (via <i>setsid</i>, where available), and the tree comprises its descendants as well as any other process
+ * of its session, so that descendants re-parented to <i>init</i> are still measured and killed. Once a limit is 
+ * exceeded, the whole tree and process group are stopped and then killed, and so is any process of the session left
+ * running once the reasoner exits, so that no descendant is left running on the reasoner's processor. The reason
+ * the reasoner terminated is recorded explicitly: {@link #OK}, {@link #TIMEOUT} (wall clock or CPU deadline), 
+ * {@link #OOM} (memory ceiling, or a non-zero exit code after a JVM reported an <i>OutOfMemoryError</i>), 
+ * {@link #CRASH} (killed by a signal that the launcher did not send, e.g., a segmentation fault) or {@link #EXIT} 
+ * (non-zero exit code). As a backstop for the CPU time deadline, which is 
+ * only checked at each sample and only over the processes found in the tree, the wrapper also sets the CPU time 
+ * limit of the reasoner's processes (<i>ulimit -t</i>) to one second beyond the deadline, and a reasoner killed 
+ * by the kernel for exceeding it is deemed to have timed out.
+ * </p>
+ */
+public class ReasonerProcessLauncher {
+	public static final long SCAN_PERIOD = 500;
+	public static final String OK = "ok", TIMEOUT = "timeout", OOM = "oom", CRASH = "crash", EXIT = "exit";
+	private static final String[] TASKSET = {"/usr/bin/taskset", "/bin/taskset"}, SETSID = {"/usr/bin/setsid", "/bin/setsid"};
+	private static final String OUT_OF_MEMORY = "java.lang.OutOfMemoryError";
+	private static final String PROC = "/proc/";
+	private static final String WRAPPER = "\"$@\"; rc=$?; cat /proc/$$/stat > \"$0\"; exit $rc";
+	private static final int SIGKILL = 9, SIGXCPU = 24;
+	private static long clockTicks;
+	private final int cpu;
+	private final long memoryLimit, cpuLimit, wallLimit, sampleInterval;
+
+	/**
+	 * Constructor
+	 * @param cpu	Processor the reasoner is pinned to (via <i>taskset</i>, where available), or -1 for none
+	 * @param memoryLimit	Resident memory ceiling of the reasoner's process tree (in megabytes), or 0 for none
+	 * @param cpuLimit	CPU time deadline of the reasoner's process tree (in seconds), or 0 for none
+	 * @param wallLimit	Wall clock deadline of the reasoner (in seconds), or 0 for none
+	 */
+	public ReasonerProcessLauncher(int cpu, long memoryLimit, long cpuLimit, long wallLimit) {
+		this.cpu = cpu;
+		this.memoryLimit = memoryLimit * 1024;
+		this.cpuLimit = cpuLimit * 1000;
+		this.wallLimit = wallLimit * 1000;
+		this.sampleInterval = Math.max(1, Long.getLong("ore.sample.ms", 50));
+	}
+
+
+	/**
+	 * Run the given command in the given folder, and wait for it to finish or for one of its limits to be exceeded
+	 * @param command	Command and its arguments, e.g., <i>./execReasoner</i> and the operation parameters
+	 * @param dir	Working directory
+	 * @param out	Stream to which the standard output and error of the command are copied
+	 * @return Resources used by the command's process tree, and the reason it terminated
+	 * @throws IOException
+	 * @throws InterruptedException	if the calling thread is interrupted, in which case the process tree is killed
+	 */
+	public ProcessUsage run(List<String> command, File dir, final OutputStream out) throws IOException, InterruptedException {
+		File stat = File.createTempFile("ore-stat", ".txt");
+		List<String> cmd = new ArrayList<String>();
+		String taskset = getTaskset();
+		if(cpu >= 0 && taskset != null) {
+			cmd.add(taskset); cmd.add("-c"); cmd.add("" + cpu);
+		}
+		String setsid = getExecutable(SETSID);
+		if(setsid != null) cmd.add(setsid);
+		cmd.add("bash"); cmd.add("-c");
+		cmd.add(cpuLimit > 0 ? "ulimit -t " + (cpuLimit/1000 + 1) + "; " + WRAPPER : WRAPPER);
+		cmd.add(stat.getAbsolutePath());
+		cmd.addAll(command);
+
+		long start = System.nanoTime();
+		final Process p = new ProcessBuilder(cmd).directory(dir).redirectErrorStream(true).start();
+		final IOException[] error = new IOException[1];
+		final boolean[] outOfMemory = new boolean[1];
+		Thread copier = new Thread(new Runnable() {
+			public void run() {
+				try {
+					outOfMemory[0] = copy(p.getInputStream(), out, OUT_OF_MEMORY);
+				} catch (IOException e) {
+					error[0] = e;
+				}
+			}
+		}, "reasoner-output");
+		copier.setDaemon(true);
+		copier.start();
+
+		int pid = getPid(p);
+		Sampler sampler = (pid > 0 && new File(PROC + pid).exists() ? new Sampler(pid, setsid != null) : null);
+		String termination = null;
+		try {
+			while(!hasExited(p)) {
+				if(sampler != null) sampler.sample();
+				termination = checkLimits(sampler, (System.nanoTime() - start)/1000000);
+				if(termination != null) {
+					kill(p, sampler);
+					break;
+				}
+				Thread.sleep(sampleInterval);
+			}
+			int exit = p.waitFor();
+			double wallTime = (System.nanoTime() - start)/1000000.0;
+			if(setsid != null && pid > 0) {
+				List<Integer> left = (sampler != null ? sampler.getTargets() : new ArrayList<Integer>(Collections.singleton(-pid)));
+				left.remove(Integer.valueOf(pid));
+				signal("KILL", left);
+			}
+			copier.join();
+			if(error[0] != null) throw error[0];
+			if(sampler == null) {
+				if(termination == null)
+					termination = getTermination(exit, Double.NaN, outOfMemory[0]);
+				return new ProcessUsage(termination, exit, wallTime, Double.NaN, Double.NaN, Double.NaN, Double.NaN, Double.NaN);
+			}
+			long[] ticks = readCpuTicks(stat);
+			long user = Math.max(sampler.user, ticks != null ? ticks[0] : 0), sys = Math.max(sampler.sys, ticks != null ? ticks[1] : 0);
+			if(termination == null)
+				termination = getTermination(exit, toMillis(user + sys), outOfMemory[0]);
+			return new ProcessUsage(termination, exit, wallTime, toMillis(user), toMillis(sys), sampler.peakRss,
+					sampler.getTotal(Sampler.VOLUNTARY), sampler.getTotal(Sampler.INVOLUNTARY));
+		} catch (InterruptedException e) {
+			kill(p, sampler);
+			throw e;
+		} finally {
+			p.destroy();
+			stat.delete();
+		}
+	}
+
+
+	/**
+	 * Get the reason a reasoner that was not killed by the launcher terminated, from its exit code
+	 * @param exit	Exit code
+	 * @param cpuTime	CPU time used by the process tree (in milliseconds), or NaN if unknown
+	 * @param outOfMemory	true if the reasoner's output reports an OutOfMemoryError
+	 * @return Termination reason
+	 */
+	private String getTermination(int exit, double cpuTime, boolean outOfMemory) {
+		if(exit == 0)
+			return OK;
+		else if(exit == 128 + SIGXCPU || (exit == 128 + SIGKILL && cpuLimit > 0 && cpuTime >= cpuLimit))
+			return TIMEOUT;
+		else if(outOfMemory)
+			return OOM;
+		else
+			return (exit > 128 ? CRASH : EXIT);
+	}
+
+
+	/**
+	 * Check whether the process tree has exceeded any of its limits
+	 * @param sampler	Sampler of the process tree, or null if it cannot be sampled
+	 * @param wallTime	Wall clock time elapsed so far (in milliseconds)
+	 * @return Termination reason if a limit was exceeded, null otherwise
+	 */
+	private String checkLimits(Sampler sampler, long wallTime) {
+		if(wallLimit > 0 && wallTime > wallLimit)
+			return TIMEOUT;
+		if(sampler == null)
+			return null;
+		if(cpuLimit > 0 && toMillis(sampler.user + sampler.sys) > cpuLimit)
+			return TIMEOUT;
+		if(memoryLimit > 0 && sampler.rss > memoryLimit)
+			return OOM;
+		return null;
+	}
+
+
+	/**
+	 * Kill the whole process tree: stop all of its processes first, so that none can fork while the tree is
+	 * being killed, then look for descendants again and kill them all, along with the process group of the 
+	 * reasoner if it was started in its own session
+	 * @param p	Root process
+	 * @param sampler	Sampler of the process tree, or null if it cannot be sampled
+	 */
+	private static void kill(Process p, Sampler sampler) {
+		if(sampler != null) {
+			signal("STOP", sampler.getTargets());
+			sampler.sampleSwitches();
+			signal("KILL", sampler.getTargets());
+		}
+		p.destroy();
+	}
+
+
+	/**
+	 * Send the given signal to the given processes
+	 * @param signal	Signal name, e.g., KILL
+	 * @param pids	List of process identifiers, negated for process groups
+	 */
+	private static void signal(String signal, List<Integer> pids) {
+		if(pids.isEmpty()) return;
+		List<String> cmd = new ArrayList<String>();
+		cmd.add("kill"); cmd.add("-" + signal); cmd.add("--");
+		for(int pid : pids)
+			cmd.add("" + pid);
+		try {
+			Process k = new ProcessBuilder(cmd).redirectErrorStream(true).start();
+			copy(k.getInputStream(), new ByteArrayOutputStream());
+			k.waitFor();
+		} catch (IOException e) {
+			System.err.println("! Unable to send signal " + signal + " to " + pids + ": " + e.getMessage());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Check whether the given process has exited, without waiting for it
+	 * @param p	Process
+	 * @return true if the process has exited, false otherwise
+	 */
+	private static boolean hasExited(Process p) {
+		try {
+			p.exitValue();
+			return true;
+		} catch (IllegalThreadStateException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Get the process identifier of the given process, via <b>Process.pid</b> where available (Java 9 and above),
+	 * or the <i>pid</i> field of the UNIX process implementation otherwise
+	 * @param p	Process
+	 * @return Process identifier, or -1 if it cannot be determined
+	 */
+	private static int getPid(Process p) {
+		try {
+			return ((Number)Process.class.getMethod("pid").invoke(p)).intValue();
+		} catch (Exception e) {
+			// Older JVM
+		}
+		try {
+			Field f = p.getClass().getDeclaredField("pid");
+			f.setAccessible(true);
+			return f.getInt(p);
+		} catch (Exception e) {
+			return -1;
+		}
+	}
+
+
+	/**
+	 * Read the CPU times that the wrapper accumulated for its descendants, from the stat it saved upon exiting
+	 * @param stat	Saved stat file
+	 * @return User and system CPU times (in clock ticks), or null if the wrapper did not save its stat
+	 */
+	private static long[] readCpuTicks(File stat) {
+		String[] fields = getStatFields(readFile(stat));
+		if(fields == null) return null;
+		return new long[] {Long.parseLong(fields[13]) + Long.parseLong(fields[15]), Long.parseLong(fields[14]) + Long.parseLong(fields[16])};
+	}
+
+
+	/**
+	 * Split the contents of a <i>stat</i> file into its fields, indexed as in the <b>proc</b> manual page
+	 * minus one, i.e., the parent process identifier is field 3, the session identifier field 5, the user and system times fields 13 and 14, and
+	 * those of the children waited for fields 15 and 16. The command name may contain spaces, hence the fields
+	 * after it are found after its closing parenthesis
+	 * @param stat	Contents of a stat file
+	 * @return Array of fields, or null if the contents are not those of a stat file
+	 */
+	private static String[] getStatFields(String stat) {
+		if(stat == null) return null;
+		int close = stat.lastIndexOf(')');
+		if(close < 0) return null;
+		String[] rest = stat.substring(close+1).trim().split(" ");
+		if(rest.length < 15) return null;
+		String[] fields = new String[rest.length + 2];
+		fields[0] = stat.substring(0, stat.indexOf(' '));
+		fields[1] = stat.substring(stat.indexOf('(')+1, close);
+		System.arraycopy(rest, 0, fields, 2, rest.length);
+		return fields;
+	}
+
+
+	/**
+	 * Read the whole of the given (small) file
+	 * @param f	File
+	 * @return File contents, or null if the file cannot be read (e.g., the process has exited)
+	 */
+	private static String readFile(File f) {
+		try {
+			InputStream in = new FileInputStream(f);
+			try {
+				ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
+				copy(in, out);
+				return out.toString();
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+
+	/**
+	 * Convert the given number of clock ticks to milliseconds
+	 * @param ticks	Number of clock ticks
+	 * @return Milliseconds
+	 */
+	private static double toMillis(long ticks) {
+		return ticks * 1000.0 / getClockTicks();
+	}
+
+
+	/**
+	 * Get the number of clock ticks per second in which <i>/proc</i> reports CPU times
+	 * @return Clock ticks per second
+	 */
+	private static synchronized long getClockTicks() {
+		if(clockTicks == 0) {
+			clockTicks = 100;
+			try {
+				Process p = new ProcessBuilder("getconf", "CLK_TCK").start();
+				BufferedReader br = new BufferedReader(new InputStreamReader(p.getInputStream()));
+				String line = br.readLine();
+				br.close();
+				p.waitFor();
+				if(line != null) clockTicks = Long.parseLong(line.trim());
+			} catch (Exception e) {
+				System.err.println("! Unable to get the clock ticks per second, assuming " + clockTicks);
+			}
+		}
+		return clockTicks;
+	}
+
+
+	/**
+	 * Pin all threads of the current (Java) process to the given processor, via <i>taskset</i>. Threads started
+	 * afterwards, and processes forked from them, inherit this affinity unless they are pinned elsewhere
+	 * @param cpu	Processor index
+	 * @return true if the process was pinned, false otherwise
+	 */
+	public static boolean pinCurrentProcess(int cpu) {
+		String taskset = getTaskset();
+		if(taskset == null) return false;
+		try {
+			String pid = new File(PROC + "self").getCanonicalFile().getName();
+			if(pid.isEmpty() || !Character.isDigit(pid.charAt(0))) return false;
+			Process p = new ProcessBuilder(taskset, "-a", "-p", "-c", "" + cpu, pid).redirectErrorStream(true).start();
+			copy(p.getInputStream(), new ByteArrayOutputStream());
+			return p.waitFor() == 0;
+		} catch (IOException e) {
+			return false;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+
+	/**
+	 * Get the path of the taskset executable
+	 * @return Path of taskset, or null if it is not available
+	 */
+	public static String getTaskset() {
+		return getExecutable(TASKSET);
+	}
+
+
+	/**
+	 * Get the first of the given executable paths that exists
+	 * @param paths	Candidate paths
+	 * @return Executable path, or null if none is available
+	 */
+	private static String getExecutable(String[] paths) {
+		for(String path : paths) {
+			if(new File(path).canExecute())
+				return path;
+		}
+		return null;
+	}
+
+
+	/**
+	 * Copy the given input stream to the given output stream, until the end of the input stream
+	 * @param in	Input stream
+	 * @param out	Output stream
+	 * @throws IOException
+	 */
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buf = new byte[8192];
+		int n;
+		while((n = in.read(buf)) >= 0)
+			out.write(buf, 0, n);
+	}
+
+
+	/**
+	 * Copy the given input stream to the given output stream, until the end of the input stream, looking for
+	 * the given (ASCII) text in what is copied
+	 * @param in	Input stream
+	 * @param out	Output stream
+	 * @param text	Text to look for
+	 * @return true if the text was found, false otherwise
+	 * @throws IOException
+	 */
+	private static boolean copy(InputStream in, OutputStream out, String text) throws IOException {
+		byte[] buf = new byte[8192];
+		String tail = "";
+		boolean found = false;
+		int n;
+		while((n = in.read(buf)) >= 0) {
+			out.write(buf, 0, n);
+			if(!found) {
+				String chunk = tail + new String(buf, 0, n, "ISO-8859-1");
+				found = chunk.contains(text);
+				tail = chunk.substring(Math.max(0, chunk.length() - text.length() + 1));
+			}
+		}
+		return found;
+	}
+
+
+	/**
+	 * Sampler of the <i>/proc</i> entries of a process tree
+	 */
+	private static class Sampler {
+		private static final int VOLUNTARY = 0, INVOLUNTARY = 1;
+		private final int root;
+		private final boolean session;
+		private final Set<Integer> tree = new HashSet<Integer>();
+		private final Map<String,long[]> switches = new HashMap<String,long[]>();
+		private long user, sys, rss, peakRss, lastScan;
+
+		/**
+		 * Constructor
+		 * @param root	Process identifier of the root of the tree
+		 * @param session	true if the root leads its own session (and process group), false otherwise
+		 */
+		public Sampler(int root, boolean session) {
+			this.root = root;
+			this.session = session;
+			tree.add(root);
+		}
+
+
+		/**
+		 * Sample the processes of the tree. The CPU times of the tree are those of its live processes plus those
+		 * of the children they waited for, which the kernel adds to the <i>cutime</i> and <i>cstime</i> fields
+		 */
+		public void sample() {
+			long now = System.currentTimeMillis();
+			boolean scan = (now - lastScan >= SCAN_PERIOD);
+			if(scan) {
+				tree.addAll(findTree());
+				lastScan = now;
+			}
+			long u = 0, s = 0, resident = 0;
+			for(Iterator<Integer> it = tree.iterator(); it.hasNext();) {
+				int pid = it.next();
+				String[] fields = getStatFields(readFile(new File(PROC + pid + "/stat")));
+				String status = readFile(new File(PROC + pid + "/status"));
+				if(fields == null || status == null) {
+					it.remove();
+					continue;
+				}
+				u += Long.parseLong(fields[13]) + Long.parseLong(fields[15]);
+				s += Long.parseLong(fields[14]) + Long.parseLong(fields[16]);
+				for(String line : status.split("\n")) {
+					if(line.startsWith("VmRSS:"))
+						resident += getValue(line);
+					else if(line.startsWith("VmHWM:"))
+						peakRss = Math.max(peakRss, getValue(line));
+				}
+				if(scan) sampleSwitches(pid);
+			}
+			user = Math.max(user, u);
+			sys = Math.max(sys, s);
+			rss = resident;
+			peakRss = Math.max(peakRss, resident);
+		}
+
+
+		/**
+		 * Get the processes to signal to kill the tree: its current processes and, if the root leads its own
+		 * session, its process group
+		 * @return List of process identifiers, negated for process groups
+		 */
+		public List<Integer> getTargets() {
+			List<Integer> pids = findTree();
+			if(session) pids.add(-root);
+			return pids;
+		}
+
+
+		/**
+		 * Scan <i>/proc</i> for the root process and its current descendants, as well as, if the root leads its
+		 * own session, the other processes of the session and their descendants
+		 * @return List of process identifiers, the root first
+		 */
+		public List<Integer> findTree() {
+			List<Integer> queue = new ArrayList<Integer>();
+			String[] pids = new File(PROC).list();
+			if(pids == null) return queue;
+			Set<Integer> found = new HashSet<Integer>();
+			queue.add(root); found.add(root);
+			Map<Integer,List<Integer>> children = new HashMap<Integer,List<Integer>>();
+			for(String name : pids) {
+				if(name.isEmpty() || !Character.isDigit(name.charAt(0))) continue;
+				String[] fields = getStatFields(readFile(new File(PROC + name + "/stat")));
+				if(fields == null) continue;
+				int pid = Integer.parseInt(name), ppid = Integer.parseInt(fields[3]);
+				List<Integer> list = children.get(ppid);
+				if(list == null) {
+					list = new ArrayList<Integer>();
+					children.put(ppid, list);
+				}
+				list.add(pid);
+				if(session && Integer.parseInt(fields[5]) == root && found.add(pid))
+					queue.add(pid);
+			}
+			for(int i = 0; i < queue.size(); i++) {
+				List<Integer> list = children.get(queue.get(i));
+				if(list == null) continue;
+				for(int child : list) {
+					if(found.add(child)) queue.add(child);
+				}
+			}
+			return queue;
+		}
+
+
+		/**
+		 * Sample the context switches of each thread of the tree
+		 */
+		public void sampleSwitches() {
+			for(int pid : tree)
+				sampleSwitches(pid);
+		}
+
+
+		/**
+		 * Sample the context switches of each thread of the given process
+		 * @param pid	Process identifier
+		 */
+		private void sampleSwitches(int pid) {
+			String[] tids = new File(PROC + pid + "/task").list();
+			if(tids == null) return;
+			for(String tid : tids) {
+				String status = readFile(new File(PROC + pid + "/task/" + tid + "/status"));
+				if(status == null) continue;
+				long[] sw = switches.get(tid);
+				if(sw == null) {
+					sw = new long[2];
+					switches.put(tid, sw);
+				}
+				for(String line : status.split("\n")) {
+					if(line.startsWith("voluntary_ctxt_switches:"))
+						sw[VOLUNTARY] = getValue(line);
+					else if(line.startsWith("nonvoluntary_ctxt_switches:"))
+						sw[INVOLUNTARY] = getValue(line);
+				}
+			}
+		}
+
+
+		/**
+		 * Get the total of the given context switch counter over all threads sampled so far, including
+		 * those that have exited since
+		 * @param counter	Counter index, i.e., VOLUNTARY or INVOLUNTARY
+		 * @return Total number of context switches
+		 */
+		public long getTotal(int counter) {
+			long total = 0;
+			for(long[] sw : switches.values())
+				total += sw[counter];
+			return total;
+		}
+
+
+		/**
+		 * Get the numeric value of a <i>status</i> line, e.g., <i>VmRSS: 1244 kB</i>
+		 * @param line	Status line
+		 * @return Value
+		 */
+		private static long getValue(String line) {
+			String v = line.substring(line.indexOf(':')+1).trim();
+			int space = v.indexOf(' ');
+			return Long.parseLong(space < 0 ? v : v.substring(0, space));
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package uk.ac.manchester.cs.ore.wrapper;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.semanticweb.owlapi.reasoner.NullReasonerProgressMonitor;
+import org.semanticweb.owlapi.reasoner.OWLReasonerConfiguration;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
+import org.semanticweb.owlapi.reasoner.ReasonerProgressMonitor;
+import org.semanticweb.owlapi.reasoner.SimpleConfiguration;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Registry of OWL API reasoner factories, looked up by (case-insensitive) name. JFact and HermiT are built in;
+ * any other reasoner on the classpath can be used either by registering its factory through the standard
+ * {@link ServiceLoader} mechanism (i.e., a <i>META-INF/services/org.semanticweb.owlapi.reasoner.OWLReasonerFactory</i>
+ * file), in which case it is known by its reasoner name, or by giving the fully qualified name of its factory class.
+ * Each factory class is loaded and instantiated only once per process.
+ * </p>
+ */
+public class ReasonerFactoryRegistry {
+	private static final Map<String,String> builtIn = new HashMap<String,String>();
+	private static final Map<String,OWLReasonerFactory> factories = new HashMap<String,OWLReasonerFactory>();
+	private static Map<String,OWLReasonerFactory> services;
+
+	static {
+		builtIn.put("jfact", "uk.ac.manchester.cs.jfact.JFactFactory");
+		builtIn.put("hermit", "org.semanticweb.HermiT.Reasoner$ReasonerFactory");
+	}
+
+	private ReasonerFactoryRegistry() {}
+
+
+	/**
+	 * Get the reasoner factory with the given name, which is either the name of a built-in reasoner, the reasoner
+	 * name of a factory registered as a service, or the fully qualified name of a factory class
+	 * @param name	Reasoner name
+	 * @return Reasoner factory
+	 * @throws IllegalArgumentException	if there is no such reasoner factory
+	 */
+	public static synchronized OWLReasonerFactory getFactory(String name) {
+		String key = name.toLowerCase();
+		OWLReasonerFactory factory = factories.get(key);
+		if(factory != null)
+			return factory;
+
+		if(builtIn.containsKey(key))
+			factory = instantiate(builtIn.get(key));
+		else if(getServices().containsKey(key))
+			factory = getServices().get(key);
+		else if(name.contains("."))
+			factory = instantiate(name);
+		else
+			throw new IllegalArgumentException("Unknown reasoner: " + name + ". Available reasoners: " + getNames());
+
+		factories.put(key, factory);
+		return factory;
+	}
+
+
+	/**
+	 * Register a reasoner factory under the given name
+	 * @param name	Reasoner name
+	 * @param factory	Reasoner factory
+	 */
+	public static synchronized void register(String name, OWLReasonerFactory factory) {
+		factories.put(name.toLowerCase(), factory);
+	}
+
+
+	/**
+	 * Check whether there is a reasoner factory for the given name
+	 * @param name	Reasoner name
+	 * @return true if a reasoner factory is available for the given name, false otherwise
+	 */
+	public static synchronized boolean isAvailable(String name) {
+		try {
+			getFactory(name);
+			return true;
+		} catch (IllegalArgumentException e) {
+			return false;
+		}
+	}
+
+
+	/**
+	 * Get the names of all known reasoners (built-in, registered, or available as services)
+	 * @return Set of reasoner names
+	 */
+	public static synchronized Set<String> getNames() {
+		Set<String> names = new TreeSet<String>(builtIn.keySet());
+		names.addAll(factories.keySet());
+		names.addAll(getServices().keySet());
+		return names;
+	}
+
+
+	/**
+	 * Get a reasoner configuration with the given settings that are common to all OWL API reasoners
+	 * @param timeout	Reasoner timeout (in milliseconds), or 0 for no timeout
+	 * @param monitor	Reasoner progress monitor, or null for none
+	 * @return Reasoner configuration
+	 */
+	public static OWLReasonerConfiguration getConfiguration(long timeout, ReasonerProgressMonitor monitor) {
+		if(monitor == null) monitor = new NullReasonerProgressMonitor();
+		return new SimpleConfiguration(monitor, (timeout > 0 ? timeout : Long.MAX_VALUE));
+	}
+
+
+	/**
+	 * Get the reasoner factories registered as services, keyed by (lower case) reasoner name
+	 * @return Map of reasoner names to factories
+	 */
+	private static Map<String,OWLReasonerFactory> getServices() {
+		if(services == null) {
+			services = new HashMap<String,OWLReasonerFactory>();
+			Iterator<OWLReasonerFactory> it = ServiceLoader.load(OWLReasonerFactory.class).iterator();
+			while(true) {
+				try {
+					if(!it.hasNext()) break;
+					OWLReasonerFactory f = it.next();
+					services.put(f.getReasonerName().toLowerCase(), f);
+				} catch (ServiceConfigurationError e) {
+					System.err.println("! Unable to load reasoner factory service: " + e.getMessage());
+				}
+			}
+		}
+		return services;
+	}
+
+
+	/**
+	 * Instantiate the reasoner factory class with the given name
+	 * @param className	Fully qualified class name
+	 * @return Reasoner factory
+	 * @throws IllegalArgumentException	if the class cannot be loaded or is not a reasoner factory
+	 */
+	private static OWLReasonerFactory instantiate(String className) {
+		try {
+			return (OWLReasonerFactory) Class.forName(className).getDeclaredConstructor().newInstance();
+		} catch (InvocationTargetException e) {
+			throw new IllegalArgumentException("Unable to load reasoner factory " + className + ": " + e.getCause(), e.getCause());
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalArgumentException("Unable to load reasoner factory " + className + ": " + e, e);
+		} catch (ClassCastException e) {
+			throw new IllegalArgumentException("Not a reasoner factory: " + className, e);
+		}
+	}
+}
@@ -1,11 +1,16 @@
 package uk.ac.manchester.cs.ore.wrapper;
 
+import java.io.BufferedReader;
 import java.io.File;
+import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
 import java.lang.management.ManagementFactory;
 import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.semanticweb.owlapi.apibinding.OWLManager;
@@ -19,56 +24,125 @@ import org.semanticweb.owlapi.model.OWLOntologyCreationException;
 import org.semanticweb.owlapi.model.OWLOntologyManager;
 import org.semanticweb.owlapi.model.OWLOntologyStorageException;
 import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
+import org.semanticweb.owlapi.reasoner.ConsoleProgressMonitor;
+import org.semanticweb.owlapi.reasoner.InferenceType;
 import org.semanticweb.owlapi.reasoner.OWLReasoner;
+import org.semanticweb.owlapi.reasoner.OWLReasonerConfiguration;
+import org.semanticweb.owlapi.reasoner.OWLReasonerFactory;
 import org.semanticweb.owlapi.util.InferredSubClassAxiomGenerator;
 
-import uk.ac.manchester.cs.jfact.JFactFactory;
-
 /**
  * @author Rafael S. Goncalves <br/>
  * Information Management Group (IMG) <br/>
  * School of Computer Science <br/>
  * University of Manchester <br/>
  * <p>
- * A simple OWL API based reasoner wrapper (using the JFact reasoner), that supports classification, 
- * satisfiability and consistency checking.
+ * A simple OWL API based reasoner wrapper (using the JFact reasoner by default, or any other reasoner
+ * available through the {@link ReasonerFactoryRegistry}), that supports classification, 
+ * satisfiability and consistency checking. Satisfiability can also be checked in batch mode, i.e., for
+ * a whole list of concepts against a single reasoner instance.
+ * </p>
+ * <p>
+ * The reasoner is created lazily and preprocessed once, upon the first operation, and is then shared by all 
+ * subsequent operations until {@link #dispose()} is called. Preprocessing precomputes the inferences that the 
+ * first operation needs (e.g., the class hierarchy for classification, or consistency for satisfiability checks).
+ * The time spent creating and preprocessing the reasoner is reported (once) as the preprocessing time, separately
+ * from the operation times; the sum of the two corresponds to the operation time of a wrapper that creates a 
+ * reasoner for each operation.
+ * </p>
+ * <p>
+ * Besides the printed times, the wall clock time, CPU time and allocated bytes of each phase (parsing, reasoner 
+ * creation, precomputation of inferences, hierarchy extraction, pruning and serialization) are recorded in a 
+ * {@link TimingSidecar} written next to the output file, from which the 
+ * {@link uk.ac.manchester.cs.ore.output.OutputHandler} reads them. Allocated bytes are those counted by the 
+ * JVM for the current thread (where supported, e.g., by HotSpot), and are otherwise recorded as unknown.
  * </p>
  */
 public class SimpleReasonerWrapper {
 	private OWLOntology ont;
 	private ThreadMXBean bean;
 	private String errorLog;
+	private PrintStream out;
+	private OWLReasonerFactory factory;
+	private OWLReasonerConfiguration config;
+	private volatile OWLReasoner reasoner;
+	private final TimingSidecar timings = new TimingSidecar();
 	
 	/**
 	 * Constructor for a simple reasoner wrapper
 	 * @param ont	OWL Ontology
 	 */
 	public SimpleReasonerWrapper(OWLOntology ont) {
+		this(ont, System.out);
+	}
+	
+	
+	/**
+	 * Constructor for a simple reasoner wrapper that reports operation times to the given stream
+	 * @param ont	OWL Ontology
+	 * @param out	Stream to which operation times are printed
+	 */
+	public SimpleReasonerWrapper(OWLOntology ont, PrintStream out) {
+		this(ont, out, ReasonerFactoryRegistry.getFactory("jfact"), ReasonerFactoryRegistry.getConfiguration(0, null));
+	}
+	
+	
+	/**
+	 * Constructor for a reasoner wrapper using the given reasoner factory and configuration
+	 * @param ont	OWL Ontology
+	 * @param out	Stream to which operation times are printed
+	 * @param factory	Reasoner factory
+	 * @param config	Reasoner configuration
+	 */
+	public SimpleReasonerWrapper(OWLOntology ont, PrintStream out, OWLReasonerFactory factory, OWLReasonerConfiguration config) {
 		this.ont = ont;
+		this.out = out;
+		this.factory = factory;
+		this.config = config;
 		bean = ManagementFactory.getThreadMXBean();
 		errorLog = "";
 	}
 	
 	
 	/**
-	 * Classify ontology (transitive closure)
+	 * Classify ontology (transitive closure). The operation time spans the precomputation of the class hierarchy 
+	 * (if not already done in preprocessing) and the extraction of the inferred subsumptions, but not their pruning, 
+	 * which is timed separately
 	 * @return Set of all inferred atomic subsumptions
 	 */
 	public Set<OWLSubClassOfAxiom> classify() {
 		InferredSubClassAxiomGenerator gen = new InferredSubClassAxiomGenerator();
 		OWLOntologyManager man = ont.getOWLOntologyManager();
+		OWLReasoner r = getReasoner(false, InferenceType.CLASS_HIERARCHY);
 		
 		long start = bean.getCurrentThreadCpuTime();
 		long start_wc = System.nanoTime();
+		long start_alloc = getAllocatedBytes(bean);
 		
-		Set<OWLSubClassOfAxiom> result = gen.createAxioms(man, createReasoner());
+		r.precomputeInferences(InferenceType.CLASS_HIERARCHY);
+		
+		long mid = bean.getCurrentThreadCpuTime();
+		long mid_wc = System.nanoTime();
+		long mid_alloc = getAllocatedBytes(bean);
+		
+		Set<OWLSubClassOfAxiom> result = gen.createAxioms(man, r);
 		
 		long end = bean.getCurrentThreadCpuTime();
 		long end_wc = System.nanoTime();
+		long end_alloc = getAllocatedBytes(bean);
 		
 		result = prune(result);
-		System.out.println("\tOperation time: " + (end_wc-start_wc)/1000000.0);
-		System.out.println("\tOperation CPU time: " + (end-start)/1000000.0);
+		
+		long pruned = bean.getCurrentThreadCpuTime();
+		long pruned_wc = System.nanoTime();
+		long pruned_alloc = getAllocatedBytes(bean);
+		
+		timings.add(TimingSidecar.PRECOMPUTE, null, mid_wc-start_wc, mid-start, getAllocated(start_alloc, mid_alloc));
+		timings.add(TimingSidecar.EXTRACTION, null, end_wc-mid_wc, end-mid, getAllocated(mid_alloc, end_alloc));
+		timings.add(TimingSidecar.REASONING, null, end_wc-start_wc, end-start, getAllocated(start_alloc, end_alloc));
+		timings.add(TimingSidecar.PRUNING, null, pruned_wc-end_wc, pruned-end, getAllocated(end_alloc, pruned_alloc));
+		out.println("\tOperation time: " + (end_wc-start_wc)/1000000.0);
+		out.println("\tOperation CPU time: " + (end-start)/1000000.0);
 		return result;
 	}
 	
@@ -78,16 +152,20 @@ public class SimpleReasonerWrapper {
 	 * @return true if ontology is consistent, false otherwise
 	 */
 	public boolean isConsistent() {
+		OWLReasoner r = getReasoner();
 		long start = bean.getCurrentThreadCpuTime();
 		long start_wc = System.nanoTime();
+		long start_alloc = getAllocatedBytes(bean);
 		
-		boolean result = createReasoner().isConsistent();
+		boolean result = r.isConsistent();
 		
 		long end = bean.getCurrentThreadCpuTime();
 		long end_wc = System.nanoTime();
+		long end_alloc = getAllocatedBytes(bean);
 		
-		System.out.println("\tOperation time: " + (end_wc-start_wc)/1000000.0);
-		System.out.println("\tOperation CPU time: " + (end-start)/1000000.0);
+		timings.add(TimingSidecar.REASONING, null, end_wc-start_wc, end-start, getAllocated(start_alloc, end_alloc));
+		out.println("\tOperation time: " + (end_wc-start_wc)/1000000.0);
+		out.println("\tOperation CPU time: " + (end-start)/1000000.0);
 		return result;
 	}
 	
@@ -109,31 +187,252 @@ public class SimpleReasonerWrapper {
 	
 	
 	/**
-	 * Check if given concept is satisfiable
+	 * Check if given concept is satisfiable. As for batch satisfiability checking, the consistency check that
+	 * this presupposes is carried out as part of the preprocessing
 	 * @param c	Concept
 	 * @return true if concept is satisfiable, false otherwise
 	 */
 	public boolean isSatisfiable(OWLClassExpression c) {
+		OWLReasoner r = getReasoner(true);
 		long start = bean.getCurrentThreadCpuTime();
 		long start_wc = System.nanoTime();
+		long start_alloc = getAllocatedBytes(bean);
 		
-		boolean result = createReasoner().isSatisfiable(c);
+		boolean result = r.isSatisfiable(c);
 		
 		long end = bean.getCurrentThreadCpuTime();
 		long end_wc = System.nanoTime();
+		long end_alloc = getAllocatedBytes(bean);
 		
-		System.out.println("\tOperation time: " + (end_wc-start_wc)/1000000.0);
-		System.out.println("\tOperation CPU time: " + (end-start)/1000000.0);
+		timings.add(TimingSidecar.REASONING, (c.isAnonymous() ? c.toString() : c.asOWLClass().getIRI().toString()), 
+				end_wc-start_wc, end-start, getAllocated(start_alloc, end_alloc));
+		out.println("\tOperation time: " + (end_wc-start_wc)/1000000.0);
+		out.println("\tOperation CPU time: " + (end-start)/1000000.0);
 		return result;
 	}
 	
 	
 	/**
-	 * Create a reasoner instance. In this case, an instance of JFact.  
+	 * Check the satisfiability of each of the given concepts against the (shared) reasoner instance. Since every
+	 * satisfiability check presupposes a consistency check, the latter is carried out once, upfront, as part of
+	 * the preprocessing. The operation times are reported per concept, each preceded by the concept's URI, and 
+	 * each result is appended to the output file as soon as it is known. The time spent appending the results 
+	 * is recorded as a single serialization phase
+	 * @param concepts	List of concepts
+	 * @param outFile	Output file path
+	 */
+	public void isSatisfiable(List<OWLClass> concepts, String outFile) {
+		OWLReasoner r = getReasoner(true);
+		long serialization = 0, serialization_wc = 0, serialization_alloc = 0;
+		for(OWLClass c : concepts) {
+			out.println("\tConcept: " + c.getIRI().toString());
+			long start = bean.getCurrentThreadCpuTime();
+			long start_wc = System.nanoTime();
+			long start_alloc = getAllocatedBytes(bean);
+			
+			boolean result = r.isSatisfiable(c);
+			
+			long end = bean.getCurrentThreadCpuTime();
+			long end_wc = System.nanoTime();
+			long end_alloc = getAllocatedBytes(bean);
+			
+			timings.add(TimingSidecar.REASONING, c.getIRI().toString(), end_wc-start_wc, end-start, getAllocated(start_alloc, end_alloc));
+			out.println("\tOperation time: " + (end_wc-start_wc)/1000000.0);
+			out.println("\tOperation CPU time: " + (end-start)/1000000.0);
+			serializeString(outFile, c.getIRI().toString() + "," + result);
+			serialization += bean.getCurrentThreadCpuTime() - end;
+			serialization_wc += System.nanoTime() - end_wc;
+			long allocated = getAllocated(end_alloc, getAllocatedBytes(bean));
+			serialization_alloc = (serialization_alloc < 0 || allocated < 0 ? -1 : serialization_alloc + allocated);
+		}
+		timings.add(TimingSidecar.SERIALIZATION, null, serialization_wc, serialization, serialization_alloc);
+	}
+	
+	
+	/**
+	 * Get the concepts listed (one URI per line) in the given file, e.g., as produced by the concept sampler
+	 * @param conceptList	Concept list file path
+	 * @return List of concepts
+	 * @throws IOException
+	 */
+	public List<OWLClass> getConcepts(String conceptList) throws IOException {
+		List<OWLClass> concepts = new ArrayList<OWLClass>();
+		BufferedReader br = new BufferedReader(new FileReader(conceptList));
+		String line;
+		while((line = br.readLine()) != null) {
+			line = line.trim();
+			if(!line.isEmpty())
+				concepts.add(ont.getOWLOntologyManager().getOWLDataFactory().getOWLClass(IRI.create(line)));
+		}
+		br.close();
+		return concepts;
+	}
+	
+	
+	/**
+	 * Get the reasoner instance shared by all operations. It is created and preprocessed upon the first call, 
+	 * and the time taken to do so is reported as the preprocessing time
+	 * @return Reasoner instance
+	 */
+	public OWLReasoner getReasoner() {
+		return getReasoner(false);
+	}
+	
+	
+	/**
+	 * Get the reasoner instance shared by all operations, creating and preprocessing it if necessary
+	 * @param checkConsistency	true if a newly created reasoner should also check consistency as part of 
+	 * the preprocessing, false otherwise
+	 * @param types	Inference types that a newly created reasoner should precompute as part of the preprocessing
+	 * @return Reasoner instance
+	 */
+	private OWLReasoner getReasoner(boolean checkConsistency, InferenceType... types) {
+		if(reasoner == null) {
+			long start = bean.getCurrentThreadCpuTime();
+			long start_wc = System.nanoTime();
+			long start_alloc = getAllocatedBytes(bean);
+			
+			OWLReasoner r = createReasoner();
+			reasoner = r;
+			
+			long mid = bean.getCurrentThreadCpuTime();
+			long mid_wc = System.nanoTime();
+			long mid_alloc = getAllocatedBytes(bean);
+			
+			r.precomputeInferences(types);
+			if(checkConsistency) r.isConsistent();
+			
+			long end = bean.getCurrentThreadCpuTime();
+			long end_wc = System.nanoTime();
+			long end_alloc = getAllocatedBytes(bean);
+			
+			timings.add(TimingSidecar.CREATE, null, mid_wc-start_wc, mid-start, getAllocated(start_alloc, mid_alloc));
+			timings.add(TimingSidecar.PRECOMPUTE, null, end_wc-mid_wc, end-mid, getAllocated(mid_alloc, end_alloc));
+			timings.add(TimingSidecar.PREPROCESS, null, end_wc-start_wc, end-start, getAllocated(start_alloc, end_alloc));
+			out.println("\tPreprocessing time: " + (end_wc-start_wc)/1000000.0);
+			out.println("\tPreprocessing CPU time: " + (end-start)/1000000.0);
+		}
+		return reasoner;
+	}
+	
+	
+	/**
+	 * Create a reasoner instance using the wrapper's reasoner factory and configuration  
 	 * @return Reasoner instance
 	 */
 	public OWLReasoner createReasoner() {
-		return new JFactFactory().createReasoner(ont);
+		return factory.createReasoner(ont, config);
+	}
+	
+	
+	/**
+	 * Get the number of bytes allocated so far by the current thread
+	 * @param bean	Thread MX bean
+	 * @return Allocated bytes, or -1 if the JVM does not count them
+	 */
+	private static long getAllocatedBytes(ThreadMXBean bean) {
+		if(bean instanceof com.sun.management.ThreadMXBean) {
+			com.sun.management.ThreadMXBean b = (com.sun.management.ThreadMXBean) bean;
+			if(b.isThreadAllocatedMemorySupported() && b.isThreadAllocatedMemoryEnabled())
+				return b.getThreadAllocatedBytes(Thread.currentThread().getId());
+		}
+		return -1;
+	}
+	
+	
+	/**
+	 * Get the number of bytes allocated between two readings of the allocation counter
+	 * @param start	Allocated bytes at the start, or -1 if unknown
+	 * @param end	Allocated bytes at the end, or -1 if unknown
+	 * @return Allocated bytes, or -1 if unknown
+	 */
+	private static long getAllocated(long start, long end) {
+		return (start < 0 || end < 0 ? -1 : end - start);
+	}
+	
+	
+	/**
+	 * Get the phase timings recorded so far, e.g., to add the time spent loading the ontology
+	 * @return Phase timings
+	 */
+	public TimingSidecar getTimings() {
+		return timings;
+	}
+	
+	
+	/**
+	 * Interrupt the reasoner currently in use, if any. This can be called from a thread 
+	 * other than the one running the operation
+	 */
+	public void interrupt() {
+		OWLReasoner r = reasoner;
+		if(r != null) r.interrupt();
+	}
+	
+	
+	/**
+	 * Dispose of the reasoner currently in use, if any. A subsequent operation creates (and preprocesses) 
+	 * a new reasoner instance
+	 */
+	public void dispose() {
+		OWLReasoner r = reasoner;
+		if(r != null) r.dispose();
+		reasoner = null;
+	}
+	
+	
+	/**
+	 * Execute the given operation and serialize its result to the specified output file, and the phase timings
+	 * to the corresponding {@link TimingSidecar} file
+	 * @param op	Operation name, one of: sat | sat-batch | consistency | classification
+	 * @param outFile	Output file path
+	 * @param conceptUri	Concept URI for satisfiability checking, or concept list file path for batch 
+	 * satisfiability checking, ignored otherwise
+	 * @throws IOException
+	 */
+	public void execute(String op, String outFile, String conceptUri) throws IOException {
+		OWLOntologyManager man = ont.getOWLOntologyManager();
+		timings.open(TimingSidecar.getFile(outFile, op, conceptUri));
+		try {
+			if(op.equalsIgnoreCase("sat-batch"))
+				isSatisfiable(getConcepts(conceptUri), outFile);
+			else {
+				String result = null;
+				Set<? extends OWLAxiom> results = null;
+				if(op.equalsIgnoreCase("sat")) {
+					OWLClass c = man.getOWLDataFactory().getOWLClass(IRI.create(conceptUri));
+					result = c.getIRI().toString() + "," + isSatisfiable(c);
+				}
+				else if(op.equalsIgnoreCase("consistency"))
+					result = "" + isConsistent();
+				else if(op.equalsIgnoreCase("classification"))
+					results = classify();
+				
+				long start = bean.getCurrentThreadCpuTime();
+				long start_wc = System.nanoTime();
+				long start_alloc = getAllocatedBytes(bean);
+				
+				if(result != null)
+					serializeString(outFile, result);
+				else if(results != null)
+					serializeClassificationResults(results, man, outFile);
+				
+				long end = bean.getCurrentThreadCpuTime();
+				long end_wc = System.nanoTime();
+				long end_alloc = getAllocatedBytes(bean);
+				
+				if(result != null || results != null)
+					timings.add(TimingSidecar.SERIALIZATION, null, end_wc-start_wc, end-start, getAllocated(start_alloc, end_alloc));
+			}
+		} finally {
+			timings.close();
+		}
+		
+		if(!errorLog.equals("")) {
+			String outDir = new File(outFile).getParent();
+			if(outDir.endsWith(File.separator)) outDir += File.separator;
+			serializeString(outDir + "error.txt", errorLog);
+		}
 	}
 	
 	
@@ -150,7 +449,9 @@ public class SimpleReasonerWrapper {
 		output.getParentFile().mkdirs();
 		IRI iri = IRI.create("file:" + output.getAbsolutePath());
 		try {
-			man.saveOntology(man.createOntology((Set<OWLAxiom>) results, iri), new OWLFunctionalSyntaxOntologyFormat(), iri);
+			OWLOntology resultOnt = man.createOntology((Set<OWLAxiom>) results, iri);
+			man.saveOntology(resultOnt, new OWLFunctionalSyntaxOntologyFormat(), iri);
+			man.removeOntology(resultOnt);
 		} catch (OWLOntologyStorageException e) {
 			errorLog += e.getStackTrace();
 		} catch (OWLOntologyCreationException e) {
@@ -168,11 +469,11 @@ public class SimpleReasonerWrapper {
 	public void serializeString(String outFile, String outputString) {
 		File output = new File(outFile);
 		output.getParentFile().mkdirs();
-		FileWriter out;
+		FileWriter writer;
 		try {
-			out = new FileWriter(output.getAbsolutePath(), true);
-			out.write(outputString + "\n");
-			out.close();
+			writer = new FileWriter(output.getAbsolutePath(), true);
+			writer.write(outputString + "\n");
+			writer.close();
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -180,35 +481,61 @@ public class SimpleReasonerWrapper {
 	
 	
 	/**
-	 * @param args
+	 * Main
+	 * 
+	 * Parameter list (index positions):
+	 * 0	Operation name, one of: sat | sat-batch | consistency | classification
+	 * 1	Ontology file path
+	 * 2	Output file path
+	 * 3	[where applicable] concept URI, or concept list file path for sat-batch
+	 * 
+	 * Options (anywhere in the parameter list):
+	 * --reasoner=name	Reasoner name or factory class name (default: jfact)
+	 * --timeout=ms	Reasoner timeout, in milliseconds (default: none)
+	 * --progress	Print the reasoner's progress to stdout
 	 * @throws OWLOntologyCreationException 
+	 * @throws IOException 
 	 */
-	public static void main(String[] args) throws OWLOntologyCreationException {
-		String op = args[0];
-		String ontFile = args[1];
-		String outFile = args[2];
+	public static void main(String[] args) throws OWLOntologyCreationException, IOException {
+		String reasonerName = "jfact";
+		long timeout = 0;
+		boolean progress = false;
+		List<String> params = new ArrayList<String>();
+		for(String arg : args) {
+			if(arg.startsWith("--reasoner=")) reasonerName = arg.substring(arg.indexOf('=')+1);
+			else if(arg.startsWith("--timeout=")) timeout = Long.parseLong(arg.substring(arg.indexOf('=')+1));
+			else if(arg.equals("--progress")) progress = true;
+			else params.add(arg);
+		}
+		String op = params.get(0);
+		String ontFile = params.get(1);
+		String outFile = params.get(2);
+		
+		OWLReasonerFactory factory = ReasonerFactoryRegistry.getFactory(reasonerName);
+		OWLReasonerConfiguration config = ReasonerFactoryRegistry.getConfiguration(timeout, (progress ? new ConsoleProgressMonitor() : null));
 				
-		System.out.println("\tStarted " + op + " on " + ontFile);
+		System.out.println("\tStarted " + op + " on " + ontFile + " using " + factory.getReasonerName());
+		String conceptUri = (params.size() > 3 ? params.get(3) : null);
+		TimingSidecar.getFile(outFile, op, conceptUri).delete();
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		long start = bean.getCurrentThreadCpuTime();
+		long start_wc = System.nanoTime();
+		long start_alloc = getAllocatedBytes(bean);
+		
 		File f = new File(ontFile);
 		OWLOntologyManager man = OWLManager.createOWLOntologyManager();
 		OWLOntology ont = man.loadOntologyFromOntologyDocument(f.getAbsoluteFile());
 		
-		SimpleReasonerWrapper r = new SimpleReasonerWrapper(ont);
-		if(op.equalsIgnoreCase("sat")) {
-			OWLClass c = man.getOWLDataFactory().getOWLClass(IRI.create(args[3]));
-			r.serializeString(outFile, c.getIRI().toString() + "," + r.isSatisfiable(c));
-		}
-		else if(op.equalsIgnoreCase("consistency"))
-			r.serializeString(outFile, "" + r.isConsistent());
-		else if(op.equalsIgnoreCase("classification")) {
-			Set<? extends OWLAxiom> results = r.classify();
-			r.serializeClassificationResults(results, man, outFile);
-		}
+		long end = bean.getCurrentThreadCpuTime();
+		long end_wc = System.nanoTime();
+		long end_alloc = getAllocatedBytes(bean);
 		
-		if(!r.errorLog.equals("")) {
-			String outDir = new File(outFile).getParent();
-			if(outDir.endsWith(File.separator)) outDir += File.separator;
-			r.serializeString(outDir + "error.txt", r.errorLog);
+		SimpleReasonerWrapper r = new SimpleReasonerWrapper(ont, System.out, factory, config);
+		r.getTimings().add(TimingSidecar.PARSE, null, end_wc-start_wc, end-start, getAllocated(start_alloc, end_alloc));
+		try {
+			r.execute(op, outFile, conceptUri);
+		} finally {
+			r.dispose();
 		}
 		
 		System.out.println("\tCompleted " + op + " on " + ontFile);
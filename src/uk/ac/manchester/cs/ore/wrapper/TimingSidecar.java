@@ -0,0 +1,346 @@
+package uk.ac.manchester.cs.ore.wrapper;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * @author Rafael S. Goncalves <br/>
+ * Information Management Group (IMG) <br/>
+ * School of Computer Science <br/>
+ * University of Manchester <br/>
+ * <p>
+ * Machine-readable record of the phase timings of a reasoner run, written by the {@link SimpleReasonerWrapper}
+ * next to its output file (as <i>outputfile_timings</i>, followed by the SHA-1 digest of the concept URI for
+ * satisfiability checks), so that they can be read back exactly, and without
+ * parsing the reasoner's log. Each phase is recorded with its wall clock and CPU times, in nanoseconds, the bytes
+ * allocated by the thread that ran it (or -1 if the JVM does not count them), and the subject it applies to, 
+ * e.g., the concept whose satisfiability was checked, or the empty string if none.
+ * </p>
+ * <p>
+ * The phases are: parse, create (the reasoner), precompute (inferences, possibly more than once), extraction (of 
+ * the inferred hierarchy), pruning and serialization. Besides these, <i>preprocess</i> spans the creation and 
+ * initial precomputation of the reasoner, and <i>reasoning</i> spans the operation itself, from which the 
+ * reported operation times are taken.
+ * </p>
+ * <p>
+ * The file is binary: a header (magic number and version) followed by one entry per phase (name, subject,
+ * wall clock time, CPU time and allocated bytes). Phases are appended and flushed as soon as they complete, so 
+ * that the phases completed before a reasoner is killed are still recorded; a truncated last entry is ignored 
+ * when reading. Files of version 1 lack allocated bytes.
+ * </p>
+ */
+public class TimingSidecar {
+	public static final String SUFFIX = "_timings";
+	public static final String PARSE = "parse", CREATE = "create", PRECOMPUTE = "precompute", EXTRACTION = "extraction", 
+			PRUNING = "pruning", SERIALIZATION = "serialization", PREPROCESS = "preprocess", REASONING = "reasoning";
+	private static final int MAGIC = 0x4f524554, VERSION = 2;
+	private final List<Phase> phases = new ArrayList<Phase>();
+	private DataOutputStream out;
+
+	/**
+	 * Constructor for an empty record, held in memory until it is opened
+	 */
+	public TimingSidecar() {}
+
+
+	/**
+	 * Get the timings file of the given output file. Satisfiability checks of different concepts append to the
+	 * same output file, so each concept has its own timings file, named after the SHA-1 digest of its URI
+	 * @param outFile	Output file path
+	 * @param op	Operation name
+	 * @param conceptUri	Concept URI, or null if not applicable
+	 * @return Timings file
+	 */
+	public static File getFile(String outFile, String op, String conceptUri) {
+		String name = outFile + SUFFIX;
+		if(op.equalsIgnoreCase("sat") && conceptUri != null)
+			name += "_" + sha1(conceptUri);
+		return new File(name);
+	}
+
+
+	/**
+	 * Get the SHA-1 digest of the given string, in hexadecimal
+	 * @param s	String
+	 * @return Hexadecimal SHA-1 digest
+	 */
+	public static String sha1(String s) {
+		try {
+			StringBuilder sb = new StringBuilder();
+			for(byte b : MessageDigest.getInstance("SHA-1").digest(s.getBytes("UTF-8")))
+				sb.append(String.format("%02x", b & 0xff));
+			return sb.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new RuntimeException(e);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+
+	/**
+	 * Record a completed phase, and append it to the timings file if one is open
+	 * @param name	Phase name
+	 * @param subject	Subject of the phase, or null if none
+	 * @param wallTime	Wall clock time (in nanoseconds)
+	 * @param cpuTime	CPU time (in nanoseconds)
+	 * @param allocated	Allocated bytes, or -1 if unknown
+	 */
+	public synchronized void add(String name, String subject, long wallTime, long cpuTime, long allocated) {
+		Phase p = new Phase(name, (subject != null ? subject : ""), wallTime, cpuTime, allocated);
+		phases.add(p);
+		if(out != null) {
+			try {
+				write(p);
+				out.flush();
+			} catch (IOException e) {
+				System.err.println("! Unable to write timings: " + e.getMessage());
+				DataOutputStream failed = out;
+				out = null;
+				try {
+					failed.close();
+				} catch (IOException ce) {
+					// Already failed
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Open (i.e., create or truncate) the given timings file, and write the phases recorded so far to it
+	 * @param file	Timings file
+	 * @throws IOException
+	 */
+	public synchronized void open(File file) throws IOException {
+		close();
+		File dir = file.getAbsoluteFile().getParentFile();
+		if(dir != null) dir.mkdirs();
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		out.writeInt(MAGIC);
+		out.writeInt(VERSION);
+		for(Phase p : phases)
+			write(p);
+		out.flush();
+	}
+
+
+	/**
+	 * Close the timings file, if one is open, and discard the phases written to it, so that the file opened 
+	 * next only records subsequent phases
+	 */
+	public synchronized void close() {
+		if(out == null) return;
+		try {
+			out.close();
+		} catch (IOException e) {
+			System.err.println("! Unable to close timings file: " + e.getMessage());
+		}
+		out = null;
+		phases.clear();
+	}
+
+
+	/**
+	 * Write the given phase to the timings file
+	 * @param p	Phase
+	 * @throws IOException
+	 */
+	private void write(Phase p) throws IOException {
+		out.writeUTF(p.getName());
+		out.writeUTF(p.getSubject());
+		out.writeLong(p.getWallTime());
+		out.writeLong(p.getCpuTime());
+		out.writeLong(p.getAllocated());
+	}
+
+
+	/**
+	 * Read the given timings file
+	 * @param file	Timings file
+	 * @return Timings, or null if the file does not exist or is not a timings file
+	 * @throws IOException
+	 */
+	public static TimingSidecar read(File file) throws IOException {
+		if(!file.isFile()) return null;
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		TimingSidecar timings = null;
+		try {
+			int version;
+			if(in.readInt() != MAGIC || (version = in.readInt()) > VERSION)
+				return null;
+			timings = new TimingSidecar();
+			while(true) {
+				String name = in.readUTF(), subject = in.readUTF();
+				long wallTime = in.readLong(), cpuTime = in.readLong(), allocated = (version > 1 ? in.readLong() : -1);
+				timings.phases.add(new Phase(name, subject, wallTime, cpuTime, allocated));
+			}
+		} catch (EOFException e) {
+			// Either the end of the file, or a truncated entry
+			return timings;
+		} finally {
+			in.close();
+		}
+	}
+
+
+	/**
+	 * Get the recorded phases, in the order they completed
+	 * @return List of phases
+	 */
+	public synchronized List<Phase> getPhases() {
+		return Collections.unmodifiableList(new ArrayList<Phase>(phases));
+	}
+
+
+	/**
+	 * Get the total wall clock time, CPU time and allocated bytes of the recorded phases with the given name and
+	 * subject, e.g., of all precomputations
+	 * @param name	Phase name
+	 * @param subject	Subject of the phases, or null if none
+	 * @return Phase with the total times and allocated bytes (-1 if unknown for any of the phases), or null if 
+	 * there is no such phase
+	 */
+	public synchronized Phase getTotal(String name, String subject) {
+		if(subject == null) subject = "";
+		Phase total = null;
+		for(Phase p : phases) {
+			if(p.getName().equals(name) && p.getSubject().equals(subject)) {
+				if(total == null)
+					total = p;
+				else
+					total = new Phase(name, subject, total.getWallTime() + p.getWallTime(), total.getCpuTime() + p.getCpuTime(),
+							(total.getAllocated() < 0 || p.getAllocated() < 0 ? -1 : total.getAllocated() + p.getAllocated()));
+			}
+		}
+		return total;
+	}
+
+
+	/**
+	 * Get the first recorded phase with the given name and subject
+	 * @param name	Phase name
+	 * @param subject	Subject of the phase, or null if none
+	 * @return Phase, or null if there is no such phase
+	 */
+	public synchronized Phase getPhase(String name, String subject) {
+		if(subject == null) subject = "";
+		for(Phase p : phases) {
+			if(p.getName().equals(name) && p.getSubject().equals(subject))
+				return p;
+		}
+		return null;
+	}
+
+
+	@Override
+	public synchronized String toString() {
+		StringBuilder sb = new StringBuilder();
+		for(Phase p : phases) {
+			sb.append(p.getName());
+			if(!p.getSubject().isEmpty()) sb.append(" [").append(p.getSubject()).append("]");
+			sb.append(": wall ").append(p.getWallTime()).append(" ns, CPU ").append(p.getCpuTime()).append(" ns");
+			if(p.getAllocated() >= 0) sb.append(", allocated ").append(p.getAllocated()).append(" bytes");
+			sb.append("\n");
+		}
+		return sb.toString();
+	}
+
+
+	/**
+	 * Timings of a single phase
+	 */
+	public static class Phase {
+		private final String name, subject;
+		private final long wallTime, cpuTime, allocated;
+
+		/**
+		 * Constructor
+		 * @param name	Phase name
+		 * @param subject	Subject of the phase, or the empty string if none
+		 * @param wallTime	Wall clock time (in nanoseconds)
+		 * @param cpuTime	CPU time (in nanoseconds)
+		 * @param allocated	Allocated bytes, or -1 if unknown
+		 */
+		public Phase(String name, String subject, long wallTime, long cpuTime, long allocated) {
+			this.name = name;
+			this.subject = subject;
+			this.wallTime = wallTime;
+			this.cpuTime = cpuTime;
+			this.allocated = allocated;
+		}
+
+
+		/**
+		 * Get the phase name
+		 * @return Phase name
+		 */
+		public String getName() {
+			return name;
+		}
+
+
+		/**
+		 * Get the subject of the phase
+		 * @return Subject, or the empty string if none
+		 */
+		public String getSubject() {
+			return subject;
+		}
+
+
+		/**
+		 * Get the wall clock time
+		 * @return Wall clock time (in nanoseconds)
+		 */
+		public long getWallTime() {
+			return wallTime;
+		}
+
+
+		/**
+		 * Get the CPU time
+		 * @return CPU time (in nanoseconds)
+		 */
+		public long getCpuTime() {
+			return cpuTime;
+		}
+
+
+		/**
+		 * Get the number of bytes allocated by the thread that ran the phase
+		 * @return Allocated bytes, or -1 if unknown
+		 */
+		public long getAllocated() {
+			return allocated;
+		}
+	}
+
+
+	/**
+	 * Main
+	 *
+	 * Parameter list (index positions):
+	 * 0	Timings file
+	 * @throws IOException
+	 */
+	public static void main(String[] args) throws IOException {
+		TimingSidecar timings = read(new File(args[0]));
+		if(timings == null)
+			System.err.println("! Not a timings file: " + args[0]);
+		else
+			System.out.print(timings);
+	}
+}